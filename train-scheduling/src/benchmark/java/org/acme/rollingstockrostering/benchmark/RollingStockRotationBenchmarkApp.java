@@ -0,0 +1,66 @@
+package org.acme.rollingstockrostering.benchmark;
+
+import ai.timefold.solver.benchmark.api.PlannerBenchmark;
+import ai.timefold.solver.benchmark.api.PlannerBenchmarkFactory;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.rest.DemoDataGenerator;
+import org.acme.rollingstockrostering.rotation.RollingStockRotationSchedule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark runner application - palaiž rotāciju (list variable) modeli uz tiem pašiem datiem,
+ * lai salīdzinātu ar RollingStockBenchmarkApp (moves/sec, score).
+ * 
+ * Rotāciju modelis ir tikai benchmark prototips (src/benchmark), tas tiek kompilēts
+ * tikai ar rotation profilu.
+ * 
+ * Palaišana no komandas līnijas:
+ * ./mvnw.cmd test-compile exec:java -Drotation -Dexec.mainClass="org.acme.rollingstockrostering.benchmark.RollingStockRotationBenchmarkApp" -Dexec.classpathScope=test
+ * 
+ * Rezultāti tiks saglabāti: target/benchmark-rotation/
+ */
+public class RollingStockRotationBenchmarkApp {
+
+    public static void main(String[] args) {
+        System.out.println("=".repeat(80));
+        System.out.println("Rolling Stock Rostering Optimization - Rotation model benchmark");
+        System.out.println("=".repeat(80));
+        
+        PlannerBenchmarkFactory benchmarkFactory = 
+            PlannerBenchmarkFactory.createFromXmlResource("rotationBenchmarkConfig.xml");
+        
+        // Ģenerē test datus dažādos izmēros un pārveido uz rotāciju modeli
+        List<RollingStockRotationSchedule> problemList = new ArrayList<>();
+        
+        System.out.println("Ģenerē mazu dataset (50 atiešanas)...");
+        problemList.add(rotationProblem(DemoDataGenerator.generateSmallDataset()));
+        
+        System.out.println("Ģenerē vidēju dataset (99 atiešanas - default)...");
+        problemList.add(rotationProblem(DemoDataGenerator.generateDefaultDataset()));
+        
+        System.out.println("Ģenerē lielu dataset (200 atiešanas)...");
+        problemList.add(rotationProblem(DemoDataGenerator.generateLargeDataset()));
+        
+        System.out.println("\nSākas benchmarking ar " + problemList.size() + " problēmām...");
+        System.out.println("=".repeat(80));
+        
+        PlannerBenchmark benchmark = benchmarkFactory.buildPlannerBenchmark(
+            problemList.toArray(new RollingStockRotationSchedule[0])
+        );
+        
+        benchmark.benchmarkAndShowReportInBrowser();
+        
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("Benchmark pabeigts! Rezultāti: target/benchmark-rotation/index.html");
+        System.out.println("=".repeat(80));
+    }
+    
+    /**
+     * Ar braucienu laikiem, kā RollingStockBenchmarkApp
+     */
+    private static RollingStockRotationSchedule rotationProblem(RollingStockSchedule schedule) {
+        return RollingStockRotationSchedule.fromSchedule(RollingStockBenchmarkApp.withTravelTimes(schedule));
+    }
+}
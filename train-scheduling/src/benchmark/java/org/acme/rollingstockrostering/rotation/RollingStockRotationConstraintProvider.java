@@ -0,0 +1,150 @@
+package org.acme.rollingstockrostering.rotation;
+
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.BraucienaLaikuMatrica;
+import org.acme.rollingstockrostering.domain.Depo;
+import org.acme.rollingstockrostering.solver.TuksoParbraucienuCollector;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.score.stream.Constraint;
+import ai.timefold.solver.core.api.score.stream.ConstraintFactory;
+import ai.timefold.solver.core.api.score.stream.ConstraintProvider;
+import ai.timefold.solver.core.api.score.stream.Joiners;
+
+/**
+ * RollingStockRotationConstraintProvider - Constraints of the rotation (list variable) model
+ * 
+ * Same objectives as RollingStockConstraintProvider. The list order of a rotation
+ * is arbitrary (see VilcienaRotacija), so every check on consecutive departures
+ * takes the departures of the rotation in time order instead: a move only
+ * changes the rotations it moves departures in or out of, so only those are
+ * sorted again, instead of joining all departures of the train.
+ * 
+ * HARD CONSTRAINTS:
+ * 1. vilciensApmekleVisasStacijas - Consecutive departures in time must be at least the
+ *    travel time between their stations apart (BraucienaLaikuMatrica; feasible exactly
+ *    when no two departures of the train are, since the travel times are a metric)
+ * 2. vilciensNeparsniezKapacitati - Train capacity not exceeded
+ * 3. vilciensNonakDepo - The last departure in time is at the train's depot
+ * 
+ * SOFT CONSTRAINTS:
+ * 5. minimizetTuksusBraucienus - Penalize empty trains
+ * 6. maksimizetPasazieruUznemsanu - Reward passenger pickup
+ * 7. minimizetTuksusParbraucienus - Travel time between consecutive departures in time,
+ *    none to the next stop of the same route run
+ */
+public class RollingStockRotationConstraintProvider implements ConstraintProvider {
+    
+    @Override
+    public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+        return new Constraint[] {
+                // Hard constraints
+                vilciensApmekleVisasStacijas(constraintFactory),
+                vilciensNeparsniezKapacitati(constraintFactory),
+                vilciensNonakDepo(constraintFactory),
+                
+                // Soft constraints
+                minimizetTuksusBraucienus(constraintFactory),
+                maksimizetPasazieruUznemsanu(constraintFactory),
+                minimizetTuksusParbraucienus(constraintFactory)
+        };
+    }
+    
+    Constraint vilciensApmekleVisasStacijas(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(VilcienaRotacija.class)
+                .filter(rotacija -> rotacija.getAtiesanas().size() > 1)
+                .join(BraucienaLaikuMatrica.class)
+                .map((rotacija, matrica) -> rotacija, RollingStockRotationConstraintProvider::konflikti)
+                .filter((rotacija, konflikti) -> konflikti > 0)
+                .penalize(HardSoftScore.ONE_HARD, (rotacija, konflikti) -> konflikti)
+                .asConstraint("vilciensApmekleVisasStacijas");
+    }
+    
+    Constraint vilciensNeparsniezKapacitati(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(RotacijasAtiesana.class)
+                .filter(atiesana -> atiesana.getRotacija() != null)
+                .filter(atiesana ->
+                        atiesana.getCilvekuDelta() > atiesana.getRotacija().getVilciens().getKapacitate())
+                .penalize(HardSoftScore.ONE_HARD,
+                        atiesana -> atiesana.getCilvekuDelta() - atiesana.getRotacija().getVilciens().getKapacitate())
+                .asConstraint("vilciensNeparsniezKapacitati");
+    }
+    
+    Constraint vilciensNonakDepo(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(VilcienaRotacija.class)
+                .filter(rotacija -> !rotacija.getAtiesanas().isEmpty())
+                .join(Depo.class,
+                        Joiners.equal(
+                                rotacija -> rotacija.getVilciens().getIdx(),
+                                Depo::getVilciensIdx
+                        )
+                )
+                // Last departure of the day
+                .filter((rotacija, depo) -> rotacija.getPedejaAtiesana().getStacijasIdx() != depo.getStacijasIdx())
+                .penalize(HardSoftScore.ONE_HARD)
+                .asConstraint("vilciensNonakDepo");
+    }
+    
+    Constraint minimizetTuksusBraucienus(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(RotacijasAtiesana.class)
+                .filter(atiesana -> atiesana.getRotacija() != null)
+                .filter(atiesana -> atiesana.getCilvekuDelta() == 0)
+                .penalize(HardSoftScore.ONE_SOFT, atiesana -> 10) // Penalty weight: 10
+                .asConstraint("minimizetTuksusBraucienus");
+    }
+    
+    Constraint maksimizetPasazieruUznemsanu(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(RotacijasAtiesana.class)
+                .filter(atiesana -> atiesana.getRotacija() != null)
+                .filter(atiesana -> atiesana.getCilvekuDelta() > 0)
+                .reward(HardSoftScore.ONE_SOFT, RotacijasAtiesana::getCilvekuDelta)
+                .asConstraint("maksimizetPasazieruUznemsanu");
+    }
+    
+    Constraint minimizetTuksusParbraucienus(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(VilcienaRotacija.class)
+                .filter(rotacija -> rotacija.getAtiesanas().size() > 1)
+                .join(BraucienaLaikuMatrica.class)
+                .map((rotacija, matrica) -> rotacija, RollingStockRotationConstraintProvider::parbraucienuLaiks)
+                .filter((rotacija, minutes) -> minutes > 0)
+                .penalize(HardSoftScore.ONE_SOFT, (rotacija, minutes) -> minutes)
+                .asConstraint("minimizetTuksusParbraucienus");
+    }
+    
+    /**
+     * Consecutive departures in time (both with a known time) at different stations
+     * that are closer than the travel time between them
+     */
+    static int konflikti(VilcienaRotacija rotacija, BraucienaLaikuMatrica matrica) {
+        List<RotacijasAtiesana> pecLaika = rotacija.getAtiesanasPecLaika();
+        int konflikti = 0;
+        for (int i = 1; i < pecLaika.size(); i++) {
+            RotacijasAtiesana iepriekseja = pecLaika.get(i - 1);
+            RotacijasAtiesana atiesana = pecLaika.get(i);
+            if (iepriekseja.getLaiksMinutes() >= 0 && atiesana.getStacijasIdx() != iepriekseja.getStacijasIdx()
+                    && !matrica.canReach(iepriekseja.getStacijasIdx(), iepriekseja.getLaiksMinutes(),
+                            atiesana.getStacijasIdx(), atiesana.getLaiksMinutes())) {
+                konflikti++;
+            }
+        }
+        return konflikti;
+    }
+    
+    /**
+     * Empty running between consecutive departures in time (both with a known time),
+     * like TuksoParbraucienuCollector
+     */
+    static int parbraucienuLaiks(VilcienaRotacija rotacija, BraucienaLaikuMatrica matrica) {
+        List<RotacijasAtiesana> pecLaika = rotacija.getAtiesanasPecLaika();
+        int minutes = 0;
+        for (int i = 1; i < pecLaika.size(); i++) {
+            RotacijasAtiesana iepriekseja = pecLaika.get(i - 1);
+            if (iepriekseja.getLaiksMinutes() >= 0) {
+                minutes += TuksoParbraucienuCollector.parbraucienaLaiks(matrica, iepriekseja.getAtiesanasLaiks(),
+                        pecLaika.get(i).getAtiesanasLaiks());
+            }
+        }
+        return minutes;
+    }
+}
@@ -0,0 +1,224 @@
+package org.acme.rollingstockrostering.rotation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.rollingstockrostering.domain.*;
+
+import ai.timefold.solver.core.api.domain.solution.PlanningEntityCollectionProperty;
+import ai.timefold.solver.core.api.domain.solution.PlanningScore;
+import ai.timefold.solver.core.api.domain.solution.PlanningSolution;
+import ai.timefold.solver.core.api.domain.solution.ProblemFactCollectionProperty;
+import ai.timefold.solver.core.api.domain.solution.ProblemFactProperty;
+import ai.timefold.solver.core.api.domain.valuerange.ValueRangeProvider;
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+
+/**
+ * RollingStockRotationSchedule - PLANNING SOLUTION of the rotation (list variable) model
+ * 
+ * Same problem as RollingStockSchedule, but modelled per train:
+ * each VilcienaRotacija holds a @PlanningListVariable of its departures,
+ * so consecutive-departure checks only sort the departures of the trains a move
+ * changed instead of joining all departures of a train.
+ * 
+ * Use fromSchedule() to convert a problem and toSchedule() to read the
+ * result back as train assignments on AtiesanasLaiks.
+ * 
+ * Benchmark-only prototype: the application cannot select it, and it is only
+ * compiled with the rotation Maven profile (-Drotation), so its @PlanningSolution
+ * stays off the classpath of the application and its tests.
+ * The moves do not keep a rotation in time order, and need not: the constraints
+ * take the departures of a rotation in time order, whatever the list order.
+ */
+@PlanningSolution
+public class RollingStockRotationSchedule {
+    
+    /**
+     * Problem Facts - Input data (read-only during solving)
+     */
+    @ProblemFactCollectionProperty
+    private List<Vilciens> vilcieni;
+    
+    @ProblemFactCollectionProperty
+    private List<Stacija> stacijas;
+    
+    @ProblemFactCollectionProperty
+    private List<Marsruts> marsruti;
+    
+    @ProblemFactCollectionProperty
+    private List<Depo> depo;
+    
+    @ProblemFactCollectionProperty
+    private List<CilvekuPieprasijums> cilvekuPieprasijumi;
+    
+    private Konfiguracija konfiguracija;
+    
+    @ProblemFactProperty
+    private BraucienaLaikuMatrica braucienaLaikuMatrica;
+    
+    /**
+     * Planning Entities - one rotation per train
+     */
+    @PlanningEntityCollectionProperty
+    private List<VilcienaRotacija> rotacijas;
+    
+    /**
+     * Planning Entities and Value Range - the departures distributed over the rotations
+     */
+    @PlanningEntityCollectionProperty
+    @ValueRangeProvider
+    private List<RotacijasAtiesana> atiesanas;
+    
+    @PlanningScore
+    private HardSoftScore score;
+    
+    // No-arg constructor required by Timefold
+    public RollingStockRotationSchedule() {
+    }
+    
+    /**
+     * Converts a RollingStockSchedule to the rotation model.
+     * Departures that already have a train are put into that train's list in time order.
+     */
+    public static RollingStockRotationSchedule fromSchedule(RollingStockSchedule schedule) {
+        RollingStockRotationSchedule rotationSchedule = new RollingStockRotationSchedule();
+        rotationSchedule.vilcieni = schedule.getVilcieni();
+        rotationSchedule.stacijas = schedule.getStacijas();
+        rotationSchedule.marsruti = schedule.getMarsruti();
+        rotationSchedule.depo = schedule.getDepo();
+        rotationSchedule.cilvekuPieprasijumi = schedule.getCilvekuPieprasijumi();
+        rotationSchedule.konfiguracija = schedule.getKonfiguracija();
+        rotationSchedule.braucienaLaikuMatrica = schedule.getBraucienaLaikuMatrica();
+        
+        Map<Vilciens, VilcienaRotacija> rotacijaByVilciens = new HashMap<>();
+        rotationSchedule.rotacijas = new ArrayList<>();
+        for (Vilciens vilciens : schedule.getVilcieni()) {
+            VilcienaRotacija rotacija = new VilcienaRotacija(vilciens);
+            rotacijaByVilciens.put(vilciens, rotacija);
+            rotationSchedule.rotacijas.add(rotacija);
+        }
+        
+        rotationSchedule.atiesanas = new ArrayList<>();
+        for (AtiesanasLaiks atiesanasLaiks : schedule.getAtiesanasLaiki()) {
+            RotacijasAtiesana atiesana = new RotacijasAtiesana(atiesanasLaiks);
+            rotationSchedule.atiesanas.add(atiesana);
+            VilcienaRotacija rotacija = atiesanasLaiks.getVilciens() == null ? null
+                    : rotacijaByVilciens.get(atiesanasLaiks.getVilciens());
+            if (rotacija != null) {
+                rotacija.getAtiesanas().add(atiesana);
+            }
+        }
+        for (VilcienaRotacija rotacija : rotationSchedule.rotacijas) {
+            rotacija.getAtiesanas().sort((a, b) -> Integer.compare(a.getLaiksMinutes(), b.getLaiksMinutes()));
+        }
+        return rotationSchedule;
+    }
+    
+    /**
+     * Converts back to a RollingStockSchedule, with every departure assigned
+     * to the train of the rotation it is in. The departures are copied,
+     * the problem facts are shared.
+     */
+    public RollingStockSchedule toSchedule() {
+        List<AtiesanasLaiks> atiesanasLaiki = new ArrayList<>(atiesanas.size());
+        for (RotacijasAtiesana atiesana : atiesanas) {
+            AtiesanasLaiks original = atiesana.getAtiesanasLaiks();
+            AtiesanasLaiks atiesanasLaiks = new AtiesanasLaiks(original.getId(), original.getStacijasId(),
+                    original.getMarsrutaId(), original.getLaiks(), original.getCilvekuDelta());
+            atiesanasLaiks.setStacijasIdx(original.getStacijasIdx());
+            atiesanasLaiks.setMarsrutaIdx(original.getMarsrutaIdx());
+            atiesanasLaiks.setMarsrutaPozicija(original.getMarsrutaPozicija());
+            atiesanasLaiks.setMaxBraucienaLaiks(original.getMaxBraucienaLaiks());
+            atiesanasLaiks.setStacija(original.getStacija());
+            atiesanasLaiks.setVilciens(atiesana.getRotacija() == null ? null : atiesana.getRotacija().getVilciens());
+            atiesanasLaiki.add(atiesanasLaiks);
+        }
+        RollingStockSchedule schedule = new RollingStockSchedule(vilcieni, stacijas, marsruti, depo,
+                cilvekuPieprasijumi, konfiguracija, atiesanasLaiki);
+        schedule.setBraucienaLaikuMatrica(braucienaLaikuMatrica);
+        return schedule;
+    }
+    
+    // Getters and setters
+    public List<Vilciens> getVilcieni() {
+        return vilcieni;
+    }
+    
+    public void setVilcieni(List<Vilciens> vilcieni) {
+        this.vilcieni = vilcieni;
+    }
+    
+    public List<Stacija> getStacijas() {
+        return stacijas;
+    }
+    
+    public void setStacijas(List<Stacija> stacijas) {
+        this.stacijas = stacijas;
+    }
+    
+    public List<Marsruts> getMarsruti() {
+        return marsruti;
+    }
+    
+    public void setMarsruti(List<Marsruts> marsruti) {
+        this.marsruti = marsruti;
+    }
+    
+    public List<Depo> getDepo() {
+        return depo;
+    }
+    
+    public void setDepo(List<Depo> depo) {
+        this.depo = depo;
+    }
+    
+    public List<CilvekuPieprasijums> getCilvekuPieprasijumi() {
+        return cilvekuPieprasijumi;
+    }
+    
+    public void setCilvekuPieprasijumi(List<CilvekuPieprasijums> cilvekuPieprasijumi) {
+        this.cilvekuPieprasijumi = cilvekuPieprasijumi;
+    }
+    
+    public Konfiguracija getKonfiguracija() {
+        return konfiguracija;
+    }
+    
+    public void setKonfiguracija(Konfiguracija konfiguracija) {
+        this.konfiguracija = konfiguracija;
+    }
+    
+    public BraucienaLaikuMatrica getBraucienaLaikuMatrica() {
+        return braucienaLaikuMatrica;
+    }
+    
+    public void setBraucienaLaikuMatrica(BraucienaLaikuMatrica braucienaLaikuMatrica) {
+        this.braucienaLaikuMatrica = braucienaLaikuMatrica;
+    }
+    
+    public List<VilcienaRotacija> getRotacijas() {
+        return rotacijas;
+    }
+    
+    public void setRotacijas(List<VilcienaRotacija> rotacijas) {
+        this.rotacijas = rotacijas;
+    }
+    
+    public List<RotacijasAtiesana> getAtiesanas() {
+        return atiesanas;
+    }
+    
+    public void setAtiesanas(List<RotacijasAtiesana> atiesanas) {
+        this.atiesanas = atiesanas;
+    }
+    
+    public HardSoftScore getScore() {
+        return score;
+    }
+    
+    public void setScore(HardSoftScore score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,84 @@
+package org.acme.rollingstockrostering.rotation;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+
+import ai.timefold.solver.core.api.domain.entity.PlanningEntity;
+import ai.timefold.solver.core.api.domain.lookup.PlanningId;
+import ai.timefold.solver.core.api.domain.variable.InverseRelationShadowVariable;
+
+/**
+ * RotācijasAtiešana (RotationDeparture) - Element of the list variable in the rotation model
+ * 
+ * Wraps one AtiesanasLaiks (the departure data itself is a problem fact here).
+ * Timefold maintains the rotacija shadow variable (the train rotation this departure
+ * is in) when it moves the departure between VilcienaRotacija lists. The list
+ * neighbours are not the previous / next departure in time, see VilcienaRotacija.
+ */
+@PlanningEntity
+public class RotacijasAtiesana {
+    
+    @PlanningId
+    private Long id;
+    
+    private AtiesanasLaiks atiesanasLaiks;
+    
+    @InverseRelationShadowVariable(sourceVariableName = "atiesanas")
+    private VilcienaRotacija rotacija;
+    
+    // No-arg constructor required by Timefold
+    public RotacijasAtiesana() {
+    }
+    
+    public RotacijasAtiesana(AtiesanasLaiks atiesanasLaiks) {
+        this.id = atiesanasLaiks.getId();
+        this.atiesanasLaiks = atiesanasLaiks;
+    }
+    
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public AtiesanasLaiks getAtiesanasLaiks() {
+        return atiesanasLaiks;
+    }
+    
+    public void setAtiesanasLaiks(AtiesanasLaiks atiesanasLaiks) {
+        this.atiesanasLaiks = atiesanasLaiks;
+    }
+    
+    public VilcienaRotacija getRotacija() {
+        return rotacija;
+    }
+    
+    public void setRotacija(VilcienaRotacija rotacija) {
+        this.rotacija = rotacija;
+    }
+    
+    /**
+     * Helpers delegating to the wrapped departure (for convenience)
+     */
+    public int getLaiksMinutes() {
+        return atiesanasLaiks.getLaiksMinutes();
+    }
+    
+    public int getStacijasIdx() {
+        return atiesanasLaiks.getStacijasIdx();
+    }
+    
+    public int getCilvekuDelta() {
+        return atiesanasLaiks.getCilvekuDelta();
+    }
+    
+    @Override
+    public String toString() {
+        return "RotacijasAtiesana{" +
+                "atiesanasLaiks=" + atiesanasLaiks +
+                ", vilciensId=" + (rotacija == null ? null : rotacija.getId()) +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+package org.acme.rollingstockrostering.rotation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.Vilciens;
+
+import ai.timefold.solver.core.api.domain.entity.PlanningEntity;
+import ai.timefold.solver.core.api.domain.lookup.PlanningId;
+import ai.timefold.solver.core.api.domain.variable.PlanningListVariable;
+
+/**
+ * VilcienaRotācija (TrainRotation) - PLANNING ENTITY of the rotation model
+ * 
+ * Instead of every departure pointing to a train (AtiesanasLaiks.vilciens),
+ * every train owns the list of departures it runs during the day.
+ * The default list moves insert departures anywhere, so the list order means
+ * nothing: RollingStockRotationConstraintProvider reads the departures in time
+ * order (getAtiesanasPecLaika()), like TuksoParbraucienuCollector does.
+ */
+@PlanningEntity
+public class VilcienaRotacija {
+    
+    private static final Comparator<RotacijasAtiesana> LAIKA_SECIBA =
+            Comparator.comparingInt(RotacijasAtiesana::getLaiksMinutes).thenComparing(RotacijasAtiesana::getId);
+    
+    @PlanningId
+    private Long id;
+    
+    private Vilciens vilciens;
+    
+    /**
+     * PLANNING VARIABLE - departures of this train, in any order
+     */
+    @PlanningListVariable
+    private List<RotacijasAtiesana> atiesanas;
+    
+    // No-arg constructor required by Timefold
+    public VilcienaRotacija() {
+        this.atiesanas = new ArrayList<>();
+    }
+    
+    public VilcienaRotacija(Vilciens vilciens) {
+        this.id = vilciens.getId();
+        this.vilciens = vilciens;
+        this.atiesanas = new ArrayList<>();
+    }
+    
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Vilciens getVilciens() {
+        return vilciens;
+    }
+    
+    public void setVilciens(Vilciens vilciens) {
+        this.vilciens = vilciens;
+    }
+    
+    public List<RotacijasAtiesana> getAtiesanas() {
+        return atiesanas;
+    }
+    
+    public void setAtiesanas(List<RotacijasAtiesana> atiesanas) {
+        this.atiesanas = atiesanas;
+    }
+    
+    /**
+     * @return a copy of the departures in time order (and id for equal times)
+     */
+    public List<RotacijasAtiesana> getAtiesanasPecLaika() {
+        List<RotacijasAtiesana> pecLaika = new ArrayList<>(atiesanas);
+        pecLaika.sort(LAIKA_SECIBA);
+        return pecLaika;
+    }
+    
+    /**
+     * @return the departure of this train that is last in time, null if it has none
+     */
+    public RotacijasAtiesana getPedejaAtiesana() {
+        return atiesanas.isEmpty() ? null : Collections.max(atiesanas, LAIKA_SECIBA);
+    }
+    
+    @Override
+    public String toString() {
+        return "VilcienaRotacija{" +
+                "vilciens=" + vilciens +
+                ", atiesanas=" + atiesanas.size() +
+                '}';
+    }
+}
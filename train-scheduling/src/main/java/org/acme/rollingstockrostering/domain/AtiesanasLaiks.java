@@ -2,7 +2,10 @@ package org.acme.rollingstockrostering.domain;
 
 import java.time.LocalTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import ai.timefold.solver.core.api.domain.entity.PlanningEntity;
+import ai.timefold.solver.core.api.domain.entity.PlanningPin;
 import ai.timefold.solver.core.api.domain.lookup.PlanningId;
 import ai.timefold.solver.core.api.domain.variable.PlanningVariable;
 
@@ -26,6 +29,9 @@ import ai.timefold.solver.core.api.domain.variable.PlanningVariable;
  *                     valueRangeProviderRefs points to the "vilcienuRange" in the 
  *                     @PlanningSolution class, which provides the list of available trains.
  * 
+ * @PlanningPin - A pinned departure keeps its train: Timefold never selects it
+ *                for a move, so frozen departures don't cost any search time.
+ * 
  * The planning variable can be NULL initially (unassigned state), and Timefold
  * will try different combinations of train assignments to minimize constraint violations.
  */
@@ -38,6 +44,12 @@ public class AtiesanasLaiks {
     private Long stacijasId; // Station ID (problem fact)
     private Long marsrutaId; // Route ID (problem fact)
     private LocalTime laiks; // Departure time (problem fact)
+    private int laiksMinutes = -1; // Departure time as minute of day, derived from laiks (-1 if unknown)
+    private int stacijasIdx = -1; // Dense station index, see RollingStockSchedule.buildIndices()
+    private int marsrutaIdx = -1; // Dense route index, see RollingStockSchedule.buildIndices()
+    private int marsrutaPozicija = -1; // Stop number on its route, see RollingStockSchedule.buildIndices()
+    private int maxBraucienaLaiks = BraucienaLaikuMatrica.MIN_NEZINAMS_LAIKS; // See getMaxBraucienaLaiks()
+    private Stacija stacija; // Resolved station, see RollingStockSchedule.buildIndices()
     private int cilvekuDelta; // Passengers picked up (problem fact)
     
     /**
@@ -59,6 +71,10 @@ public class AtiesanasLaiks {
     @PlanningVariable(valueRangeProviderRefs = "vilcienuRange")
     private Vilciens vilciens;
     
+    // Frozen: the solver may not change vilciens, see RollingStockSchedule.pinDeparturesBefore()
+    @PlanningPin
+    private boolean pinned;
+    
     // No-arg constructor required by Timefold
     public AtiesanasLaiks() {
     }
@@ -68,7 +84,7 @@ public class AtiesanasLaiks {
         this.id = id;
         this.stacijasId = stacijasId;
         this.marsrutaId = marsrutaId;
-        this.laiks = laiks;
+        setLaiks(laiks);
         this.cilvekuDelta = cilvekuDelta;
         // vilciens starts as null (unassigned)
     }
@@ -90,6 +106,70 @@ public class AtiesanasLaiks {
         this.stacijasId = stacijasId;
     }
     
+    /**
+     * Dense index of the station (position in RollingStockSchedule.stacijas),
+     * so constraints can compare stations as ints instead of boxed ids.
+     */
+    @JsonIgnore
+    public int getStacijasIdx() {
+        return stacijasIdx;
+    }
+    
+    public void setStacijasIdx(int stacijasIdx) {
+        this.stacijasIdx = stacijasIdx;
+    }
+    
+    /**
+     * Dense index of the route (position in RollingStockSchedule.marsruti),
+     * e.g. to look up the demand for it in the CilvekuPieprasijumuIndekss.
+     */
+    @JsonIgnore
+    public int getMarsrutaIdx() {
+        return marsrutaIdx;
+    }
+    
+    public void setMarsrutaIdx(int marsrutaIdx) {
+        this.marsrutaIdx = marsrutaIdx;
+    }
+    
+    /**
+     * Position of the station in the stations of the route (0 = first stop),
+     * -1 if it is not on the route. A run of the route stops at positions 0, 1, 2, ...
+     */
+    @JsonIgnore
+    public int getMarsrutaPozicija() {
+        return marsrutaPozicija;
+    }
+    
+    public void setMarsrutaPozicija(int marsrutaPozicija) {
+        this.marsrutaPozicija = marsrutaPozicija;
+    }
+    
+    /**
+     * Longest travel time in minutes from the station to any other (BraucienaLaikuMatrica),
+     * so a constraint can join only the departures a train could not reach in time.
+     */
+    @JsonIgnore
+    public int getMaxBraucienaLaiks() {
+        return maxBraucienaLaiks;
+    }
+    
+    public void setMaxBraucienaLaiks(int maxBraucienaLaiks) {
+        this.maxBraucienaLaiks = maxBraucienaLaiks;
+    }
+    
+    /**
+     * The station of stacijasId (null if it is not in the schedule's stacijas)
+     */
+    @JsonIgnore
+    public Stacija getStacija() {
+        return stacija;
+    }
+    
+    public void setStacija(Stacija stacija) {
+        this.stacija = stacija;
+    }
+    
     public Long getMarsrutaId() {
         return marsrutaId;
     }
@@ -104,6 +184,16 @@ public class AtiesanasLaiks {
     
     public void setLaiks(LocalTime laiks) {
         this.laiks = laiks;
+        this.laiksMinutes = laiks == null ? -1 : laiks.toSecondOfDay() / 60;
+    }
+    
+    /**
+     * Departure time as minute of day (0-1439), precomputed so constraint
+     * joiners can index on it without touching LocalTime.
+     */
+    @JsonIgnore
+    public int getLaiksMinutes() {
+        return laiksMinutes;
     }
     
     public int getCilvekuDelta() {
@@ -122,6 +212,14 @@ public class AtiesanasLaiks {
         this.vilciens = vilciens;
     }
     
+    public boolean isPinned() {
+        return pinned;
+    }
+    
+    public void setPinned(boolean pinned) {
+        this.pinned = pinned;
+    }
+    
     /**
      * Helper method to get vilciens ID (for convenience)
      */
@@ -0,0 +1,255 @@
+package org.acme.rollingstockrostering.domain;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import ai.timefold.solver.core.api.domain.lookup.PlanningId;
+
+/**
+ * BraucienaLaikuMatrica (TravelTimeMatrix) - Problem Fact
+ * 
+ * The shortest travel time in whole minutes between every two stations, in one flat
+ * int array indexed [noStacijasIdx * stacijuSkaits + uzStacijasIdx], so a constraint
+ * can check in O(1) whether a train can get from one departure to another.
+ * 
+ * Computed once per network (see StacijuTikls.getBraucienaLaikuMatrica()) with one
+ * Dijkstra per source station, in parallel, over the kaiminiStacijas graph. A track
+ * can be used both ways, so a neighbour listed by either station is an edge. An edge
+ * takes the great-circle distance at KM_PER_MINUTE, at least 1 minute, or
+ * MIN_NEZINAMS_LAIKS if a station has no coordinates.
+ * 
+ * Travel between stations without a known path (no neighbours at all, another part
+ * of the network, or a station that is not in the network) takes the "unknown" time:
+ * MIN_NEZINAMS_LAIKS, or the longest known shortest path if that is longer, so the
+ * travel times stay a metric (a train can never get there faster via another station).
+ * The same station takes 0 minutes. The station indices are those of
+ * RollingStockSchedule.buildIndices().
+ * 
+ * The matrix is immutable and shared by every schedule on the same network. It takes
+ * stations² ints, so only a shared network has one, see
+ * RollingStockSchedule.buildBraucienaLaikuMatrica(). Other schedules get BEZ_TIKLA.
+ */
+public class BraucienaLaikuMatrica {
+    
+    public static final double KM_PER_MINUTE = 1.0; // Roughly train speed, like the nearby distance
+    
+    // Minutes between different stations without a known path (the former fixed minimum)
+    public static final int MIN_NEZINAMS_LAIKS = 30;
+    
+    private static final int NESASNIEDZAMS = Integer.MAX_VALUE; // Not reached (yet) by Dijkstra
+    
+    /**
+     * The matrix without a network: no known paths, so every two different stations are
+     * MIN_NEZINAMS_LAIKS apart, the fixed minimum from before there were travel times
+     */
+    public static final BraucienaLaikuMatrica BEZ_TIKLA =
+            new BraucienaLaikuMatrica(0, new int[0], new int[0], MIN_NEZINAMS_LAIKS);
+    
+    @PlanningId
+    private final Long id = 1L; // One matrix per schedule
+    
+    private final int stacijuSkaits;
+    private final int[] laiki; // [noStacijasIdx * stacijuSkaits + uzStacijasIdx], minutes
+    private final int[] maxLaiki; // Longest travel time from every station (at least MIN_NEZINAMS_LAIKS)
+    private final int nezinamsLaiks;
+    
+    private BraucienaLaikuMatrica(int stacijuSkaits, int[] laiki, int[] maxLaiki, int nezinamsLaiks) {
+        this.stacijuSkaits = stacijuSkaits;
+        this.laiki = laiki;
+        this.maxLaiki = maxLaiki;
+        this.nezinamsLaiks = nezinamsLaiks;
+    }
+    
+    /**
+     * Computes the matrix in O(stations × (stations + neighbours) × log(stations)), spread over the common pool
+     */
+    public static BraucienaLaikuMatrica of(StacijuTikls tikls) {
+        int n = tikls.getStacijuSkaits();
+        if ((long) n * n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many stations (" + n + ") for a travel time matrix.");
+        }
+        // Undirected adjacency with edge times, as CSR like the network
+        int[] kaiminuSkaits = new int[n + 1];
+        for (int idx = 0; idx < n; idx++) {
+            for (int k = 0; k < tikls.getKaiminuSkaits(idx); k++) {
+                kaiminuSkaits[idx]++;
+                kaiminuSkaits[tikls.getKaimins(idx, k)]++;
+            }
+        }
+        int[] sakums = new int[n + 1];
+        for (int idx = 0; idx < n; idx++) {
+            sakums[idx + 1] = sakums[idx] + kaiminuSkaits[idx];
+        }
+        int[] kaimini = new int[sakums[n]];
+        int[] malasLaiki = new int[sakums[n]];
+        int[] nakamais = Arrays.copyOf(sakums, n);
+        for (int idx = 0; idx < n; idx++) {
+            for (int k = 0; k < tikls.getKaiminuSkaits(idx); k++) {
+                int kaimins = tikls.getKaimins(idx, k);
+                int laiks = malasLaiks(tikls.distanceKm(idx, kaimins));
+                kaimini[nakamais[idx]] = kaimins;
+                malasLaiki[nakamais[idx]++] = laiks;
+                kaimini[nakamais[kaimins]] = idx;
+                malasLaiki[nakamais[kaimins]++] = laiks;
+            }
+        }
+        
+        int[] laiki = new int[n * n];
+        IntStream.range(0, n).parallel().forEach(no -> dijkstra(no, n, sakums, kaimini, malasLaiki, laiki));
+        
+        int garakaisZinamais = 0;
+        for (int laiks : laiki) {
+            if (laiks != NESASNIEDZAMS) {
+                garakaisZinamais = Math.max(garakaisZinamais, laiks);
+            }
+        }
+        int nezinamsLaiks = Math.max(MIN_NEZINAMS_LAIKS, garakaisZinamais);
+        int[] maxLaiki = new int[n];
+        for (int no = 0; no < n; no++) {
+            int maxLaiks = MIN_NEZINAMS_LAIKS;
+            for (int i = no * n; i < (no + 1) * n; i++) {
+                if (laiki[i] == NESASNIEDZAMS) {
+                    laiki[i] = nezinamsLaiks;
+                }
+                maxLaiks = Math.max(maxLaiks, laiki[i]);
+            }
+            maxLaiki[no] = maxLaiks;
+        }
+        return new BraucienaLaikuMatrica(n, laiki, maxLaiki, nezinamsLaiks);
+    }
+    
+    private static int malasLaiks(double distanceKm) {
+        if (Double.isNaN(distanceKm)) {
+            return MIN_NEZINAMS_LAIKS;
+        }
+        return Math.max(1, (int) Math.ceil(distanceKm / KM_PER_MINUTE));
+    }
+    
+    /**
+     * Fills row no of the matrix: a binary heap of (time << 32 | station) with lazy deletion
+     */
+    private static void dijkstra(int no, int n, int[] sakums, int[] kaimini, int[] malasLaiki, int[] laiki) {
+        int rinda = no * n;
+        Arrays.fill(laiki, rinda, rinda + n, NESASNIEDZAMS);
+        laiki[rinda + no] = 0;
+        long[] heap = new long[Math.max(16, sakums[n] + 1)];
+        int heapSize = 0;
+        heap[heapSize++] = no;
+        while (heapSize > 0) {
+            long top = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+            int stacija = (int) top;
+            int laiks = (int) (top >>> 32);
+            if (laiks > laiki[rinda + stacija]) {
+                continue; // Already reached faster
+            }
+            for (int i = sakums[stacija]; i < sakums[stacija + 1]; i++) {
+                int kaimins = kaimini[i];
+                int kaiminaLaiks = laiks + malasLaiki[i];
+                if (kaiminaLaiks < laiki[rinda + kaimins]) {
+                    laiki[rinda + kaimins] = kaiminaLaiks;
+                    if (heapSize == heap.length) {
+                        heap = Arrays.copyOf(heap, heapSize * 2);
+                    }
+                    heap[heapSize] = ((long) kaiminaLaiks << 32) | kaimins;
+                    siftUp(heap, heapSize++);
+                }
+            }
+        }
+    }
+    
+    private static void siftUp(long[] heap, int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+    
+    private static void siftDown(long[] heap, int size) {
+        if (size == 0) {
+            return;
+        }
+        long value = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+    
+    /**
+     * @return the shortest travel time in minutes, 0 for the same station,
+     *         the "unknown" time if one of them is not in the matrix (e.g. -1)
+     */
+    public int getBraucienaLaiks(int noStacijasIdx, int uzStacijasIdx) {
+        if (noStacijasIdx == uzStacijasIdx) {
+            return 0;
+        }
+        if (noStacijasIdx < 0 || noStacijasIdx >= stacijuSkaits
+                || uzStacijasIdx < 0 || uzStacijasIdx >= stacijuSkaits) {
+            return nezinamsLaiks;
+        }
+        return laiki[noStacijasIdx * stacijuSkaits + uzStacijasIdx];
+    }
+    
+    /**
+     * @return the longest travel time from the station to any other, at least MIN_NEZINAMS_LAIKS,
+     *         the "unknown" time if it is not in the matrix
+     */
+    public int getMaxBraucienaLaiks(int stacijasIdx) {
+        if (stacijasIdx < 0 || stacijasIdx >= stacijuSkaits) {
+            return nezinamsLaiks;
+        }
+        return maxLaiki[stacijasIdx];
+    }
+    
+    /**
+     * Can a train that departs from station noStacijasIdx at minute noLaiks make the departure
+     * at station uzStacijasIdx at minute uzLaiks? Travel times are symmetric, so the order of
+     * the two departures does not matter: only the gap between them.
+     */
+    public boolean canReach(int noStacijasIdx, int noLaiks, int uzStacijasIdx, int uzLaiks) {
+        return Math.abs(uzLaiks - noLaiks) >= getBraucienaLaiks(noStacijasIdx, uzStacijasIdx);
+    }
+    
+    /**
+     * @return the travel time between stations without a known path
+     */
+    public int getNezinamsLaiks() {
+        return nezinamsLaiks;
+    }
+    
+    public int getStacijuSkaits() {
+        return stacijuSkaits;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return "BraucienaLaikuMatrica{" +
+                "stacijas=" + stacijuSkaits +
+                ", nezinamsLaiks=" + nezinamsLaiks +
+                '}';
+    }
+}
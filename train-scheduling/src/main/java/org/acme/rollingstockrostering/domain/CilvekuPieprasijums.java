@@ -2,6 +2,8 @@ package org.acme.rollingstockrostering.domain;
 
 import java.time.LocalTime;
 
+import ai.timefold.solver.core.api.domain.lookup.PlanningId;
+
 /**
  * CilvēkuPieprasījums (PassengerDemand) - Problem Fact
  * 
@@ -11,6 +13,7 @@ import java.time.LocalTime;
  */
 public class CilvekuPieprasijums {
     
+    @PlanningId // Problem changes look up the working demand by its id
     private Long id;
     private Long stacijasId; // Station ID
     private Long marsrutaId; // Route ID
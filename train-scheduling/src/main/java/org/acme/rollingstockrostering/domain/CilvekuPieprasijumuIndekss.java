@@ -0,0 +1,112 @@
+package org.acme.rollingstockrostering.domain;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CilvēkuPieprasījumuIndekss (PassengerDemandIndex)
+ * 
+ * All CilvekuPieprasijums of a schedule in one flat int array, indexed by
+ * station idx × route idx × hour, so the demand of a departure is an array
+ * access instead of a scan over all demand. The data generators and
+ * UpdateCilvekuPieprasijumsProblemChange set the cilvekuDelta of departures
+ * from it; the constraints only read cilvekuDelta.
+ * 
+ * The station and route indices are dense, in order of first occurrence in
+ * stacijas / marsruti, like RollingStockSchedule.buildIndices() assigns them.
+ * Demand for a station or route that is not in those lists is ignored,
+ * and looking it up returns 0. If there are several demands for the same
+ * station, route and hour, the first one counts.
+ * 
+ * The index is immutable: when the demand changes, it is replaced as a whole.
+ */
+public class CilvekuPieprasijumuIndekss {
+    
+    public static final int STUNDAS = 24; // Hours of the day
+    
+    private final Map<Long, Integer> stacijasIdxById;
+    private final Map<Long, Integer> marsrutaIdxById;
+    private final int[] cilvekuSkaiti; // [(stacijasIdx * marsrutuSkaits + marsrutaIdx) * STUNDAS + stunda]
+    
+    private CilvekuPieprasijumuIndekss(Map<Long, Integer> stacijasIdxById, Map<Long, Integer> marsrutaIdxById,
+                                       int[] cilvekuSkaiti) {
+        this.stacijasIdxById = stacijasIdxById;
+        this.marsrutaIdxById = marsrutaIdxById;
+        this.cilvekuSkaiti = cilvekuSkaiti;
+    }
+    
+    /**
+     * Builds the index in O(stations × routes × 24 + demand)
+     * 
+     * @param cilvekuPieprasijumi may be null (no demand)
+     */
+    public static CilvekuPieprasijumuIndekss of(List<Stacija> stacijas, List<Marsruts> marsruti,
+                                                List<CilvekuPieprasijums> cilvekuPieprasijumi) {
+        Map<Long, Integer> stacijasIdxById = new HashMap<>();
+        for (Stacija stacija : stacijas) {
+            stacijasIdxById.putIfAbsent(stacija.getId(), stacijasIdxById.size());
+        }
+        Map<Long, Integer> marsrutaIdxById = new HashMap<>();
+        for (Marsruts marsruts : marsruti) {
+            marsrutaIdxById.putIfAbsent(marsruts.getId(), marsrutaIdxById.size());
+        }
+        int marsrutuSkaits = marsrutaIdxById.size();
+        int[] cilvekuSkaiti = new int[stacijasIdxById.size() * marsrutuSkaits * STUNDAS];
+        if (cilvekuPieprasijumi != null) {
+            // Backwards, so the first demand of the same station, route and hour is written last
+            for (int i = cilvekuPieprasijumi.size() - 1; i >= 0; i--) {
+                CilvekuPieprasijums pieprasijums = cilvekuPieprasijumi.get(i);
+                Integer stacijasIdx = stacijasIdxById.get(pieprasijums.getStacijasId());
+                Integer marsrutaIdx = marsrutaIdxById.get(pieprasijums.getMarsrutaId());
+                if (stacijasIdx != null && marsrutaIdx != null && pieprasijums.getStunda() != null) {
+                    cilvekuSkaiti[(stacijasIdx * marsrutuSkaits + marsrutaIdx) * STUNDAS
+                            + pieprasijums.getStunda().getHour()] = pieprasijums.getCilvekuSkaits();
+                }
+            }
+        }
+        return new CilvekuPieprasijumuIndekss(stacijasIdxById, marsrutaIdxById, cilvekuSkaiti);
+    }
+    
+    /**
+     * @return the passengers of that station, route and hour (0 to 23), or 0 if there is no such demand
+     */
+    public int getCilvekuSkaits(int stacijasIdx, int marsrutaIdx, int stunda) {
+        int marsrutuSkaits = marsrutaIdxById.size();
+        if (stacijasIdx < 0 || stacijasIdx >= stacijasIdxById.size()
+                || marsrutaIdx < 0 || marsrutaIdx >= marsrutuSkaits
+                || stunda < 0 || stunda >= STUNDAS) {
+            return 0;
+        }
+        return cilvekuSkaiti[(stacijasIdx * marsrutuSkaits + marsrutaIdx) * STUNDAS + stunda];
+    }
+    
+    /**
+     * Same as getCilvekuSkaits(int, int, int), for callers that only have the ids
+     */
+    public int getCilvekuSkaits(Long stacijasId, Long marsrutaId, int stunda) {
+        return getCilvekuSkaits(getStacijasIdx(stacijasId), getMarsrutaIdx(marsrutaId), stunda);
+    }
+    
+    /**
+     * @return the dense index of the station, or -1 if it is not in the index
+     */
+    public int getStacijasIdx(Long stacijasId) {
+        return stacijasIdxById.getOrDefault(stacijasId, -1);
+    }
+    
+    /**
+     * @return the dense index of the route, or -1 if it is not in the index
+     */
+    public int getMarsrutaIdx(Long marsrutaId) {
+        return marsrutaIdxById.getOrDefault(marsrutaId, -1);
+    }
+    
+    @Override
+    public String toString() {
+        return "CilvekuPieprasijumuIndekss{" +
+                "stacijas=" + stacijasIdxById.size() +
+                ", marsruti=" + marsrutaIdxById.size() +
+                '}';
+    }
+}
@@ -1,5 +1,7 @@
 package org.acme.rollingstockrostering.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * Depo (Depot) - Problem Fact
  * 
@@ -11,6 +13,8 @@ public class Depo {
     private Long id;
     private Long vilciensId; // Associated train ID
     private Long stacijaId; // Station ID where depot is located
+    private int vilciensIdx = -1; // Dense train index, see RollingStockSchedule.buildIndices()
+    private int stacijasIdx = -1; // Dense station index, see RollingStockSchedule.buildIndices()
     
     public Depo() {
     }
@@ -46,6 +50,24 @@ public class Depo {
         this.stacijaId = stacijaId;
     }
     
+    @JsonIgnore
+    public int getVilciensIdx() {
+        return vilciensIdx;
+    }
+    
+    public void setVilciensIdx(int vilciensIdx) {
+        this.vilciensIdx = vilciensIdx;
+    }
+    
+    @JsonIgnore
+    public int getStacijasIdx() {
+        return stacijasIdx;
+    }
+    
+    public void setStacijasIdx(int stacijasIdx) {
+        this.stacijasIdx = stacijasIdx;
+    }
+    
     @Override
     public String toString() {
         return "Depo{" +
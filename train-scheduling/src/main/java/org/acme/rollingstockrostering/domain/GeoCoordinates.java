@@ -5,6 +5,8 @@ package org.acme.rollingstockrostering.domain;
  */
 public class GeoCoordinates {
     
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    
     private double latitude;
     private double longitude;
     
@@ -32,6 +34,25 @@ public class GeoCoordinates {
         this.longitude = longitude;
     }
     
+    /**
+     * Great-circle (haversine) distance to the other coordinates in kilometres
+     */
+    public double distanceTo(GeoCoordinates other) {
+        return distanceKm(latitude, longitude, other.latitude, other.longitude);
+    }
+    
+    /**
+     * Great-circle (haversine) distance between the two points in kilometres
+     */
+    public static double distanceKm(double latitudeA, double longitudeA, double latitudeB, double longitudeB) {
+        double latitudeDelta = Math.toRadians(latitudeB - latitudeA);
+        double longitudeDelta = Math.toRadians(longitudeB - longitudeA);
+        double a = Math.sin(latitudeDelta / 2) * Math.sin(latitudeDelta / 2)
+                + Math.cos(Math.toRadians(latitudeA)) * Math.cos(Math.toRadians(latitudeB))
+                * Math.sin(longitudeDelta / 2) * Math.sin(longitudeDelta / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+    
     @Override
     public String toString() {
         return "(" + latitude + ", " + longitude + ")";
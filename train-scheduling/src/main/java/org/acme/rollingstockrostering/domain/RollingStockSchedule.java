@@ -1,11 +1,18 @@
 package org.acme.rollingstockrostering.domain;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import ai.timefold.solver.core.api.domain.solution.PlanningEntityCollectionProperty;
 import ai.timefold.solver.core.api.domain.solution.PlanningScore;
 import ai.timefold.solver.core.api.domain.solution.PlanningSolution;
 import ai.timefold.solver.core.api.domain.solution.ProblemFactCollectionProperty;
+import ai.timefold.solver.core.api.domain.solution.ProblemFactProperty;
 import ai.timefold.solver.core.api.domain.valuerange.ValueRangeProvider;
 import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
 import ai.timefold.solver.core.api.solver.SolverStatus;
@@ -62,6 +69,13 @@ public class RollingStockSchedule {
     
     private Konfiguracija konfiguracija; // Single problem fact (not a collection)
     
+    // Demand by station idx × route idx × hour, built by buildIndices(), to set cilvekuDelta from
+    private CilvekuPieprasijumuIndekss cilvekuPieprasijumuIndekss;
+    
+    // Travel time between every two stations, set by buildBraucienaLaikuMatrica()
+    @ProblemFactProperty
+    private BraucienaLaikuMatrica braucienaLaikuMatrica;
+    
     /**
      * Value Range Provider - Available trains that can be assigned
      * 
@@ -104,6 +118,9 @@ public class RollingStockSchedule {
     // Solver status (not used by Timefold, but useful for REST API)
     private SolverStatus solverStatus;
     
+    // Best solution version (not used by Timefold), see GET /rolling-stock-schedule?since=<version>
+    private Long version;
+    
     // No-arg constructor required by Timefold
     public RollingStockSchedule() {
     }
@@ -124,6 +141,163 @@ public class RollingStockSchedule {
         this.atiesanasLaiki = atiesanasLaiki;
     }
     
+    /**
+     * Assigns dense int indices to stations, routes and trains (their position in
+     * stacijas / marsruti / vilcieni) and resolves the station, route and train ids
+     * referenced by depots and departures to those indices, and the position of every
+     * departure's station on its route (the first, if the route stops there twice). Also builds the
+     * CilvekuPieprasijumuIndekss of the demand, with the same indices.
+     * The BraucienaLaikuMatrica is that of the shared network if it is already computed,
+     * otherwise BraucienaLaikuMatrica.BEZ_TIKLA until buildBraucienaLaikuMatrica().
+     * 
+     * The constraints compare these primitive indices instead of boxed ids,
+     * so this must be called once on every problem before it is solved.
+     * Ids that are not in the lists still get their own (higher) index,
+     * so equality between them is preserved.
+     * Departures also get a reference to their Stacija, and an already assigned
+     * vilciens is replaced by the instance in vilcieni with the same id
+     * (or unassigned if there is none), e.g. after reading the schedule from JSON.
+     */
+    public void buildIndices() {
+        Map<Long, Integer> stacijasIdxById = new HashMap<>();
+        Map<Long, Stacija> stacijaById = new HashMap<>();
+        for (Stacija stacija : stacijas) {
+            stacija.setIdx(indexOf(stacijasIdxById, stacija.getId()));
+            stacijaById.putIfAbsent(stacija.getId(), stacija);
+        }
+        Map<Long, Integer> marsrutaIdxById = new HashMap<>();
+        Map<Long, Map<Long, Integer>> pozicijasByMarsrutaId = new HashMap<>();
+        for (Marsruts marsruts : marsruti) {
+            indexOf(marsrutaIdxById, marsruts.getId());
+            Map<Long, Integer> pozicijas = new HashMap<>();
+            if (marsruts.getStacijas() != null) {
+                for (int i = 0; i < marsruts.getStacijas().size(); i++) {
+                    pozicijas.putIfAbsent(marsruts.getStacijas().get(i), i);
+                }
+            }
+            pozicijasByMarsrutaId.putIfAbsent(marsruts.getId(), pozicijas);
+        }
+        Map<Long, Integer> vilciensIdxById = new HashMap<>();
+        Map<Long, Vilciens> vilciensById = new HashMap<>();
+        for (Vilciens vilciens : vilcieni) {
+            vilciens.setIdx(indexOf(vilciensIdxById, vilciens.getId()));
+            vilciensById.putIfAbsent(vilciens.getId(), vilciens);
+        }
+        if (depo != null) {
+            for (Depo d : depo) {
+                d.setVilciensIdx(indexOf(vilciensIdxById, d.getVilciensId()));
+                d.setStacijasIdx(indexOf(stacijasIdxById, d.getStacijaId()));
+            }
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setStacijasIdx(indexOf(stacijasIdxById, atiesanasLaiks.getStacijasId()));
+            atiesanasLaiks.setMarsrutaIdx(indexOf(marsrutaIdxById, atiesanasLaiks.getMarsrutaId()));
+            Map<Long, Integer> pozicijas = pozicijasByMarsrutaId.get(atiesanasLaiks.getMarsrutaId());
+            Integer pozicija = pozicijas != null ? pozicijas.get(atiesanasLaiks.getStacijasId()) : null;
+            atiesanasLaiks.setMarsrutaPozicija(pozicija != null ? pozicija : -1);
+            atiesanasLaiks.setStacija(stacijaById.get(atiesanasLaiks.getStacijasId()));
+            if (atiesanasLaiks.getVilciens() != null) {
+                atiesanasLaiks.setVilciens(vilciensById.get(atiesanasLaiks.getVilciens().getId()));
+            }
+        }
+        cilvekuPieprasijumuIndekss = CilvekuPieprasijumuIndekss.of(stacijas, marsruti, cilvekuPieprasijumi);
+        StacijuTikls tikls = getStacijuTikls();
+        useBraucienaLaikuMatrica(tikls != null && tikls.hasBraucienaLaikuMatrica()
+                ? tikls.getBraucienaLaikuMatrica()
+                : BraucienaLaikuMatrica.BEZ_TIKLA);
+    }
+    
+    /**
+     * Takes the BraucienaLaikuMatrica of the shared StacijuTikls of the stations (see
+     * RollingStockStationNetworkStore and buildStacijuTikls()) and the maxBraucienaLaiks
+     * of the departures from it. The matrix has stations² entries, so it is only computed
+     * for a shared network, once, when the first schedule on it starts solving: call this
+     * after buildIndices(), right before solving. Without a shared network the schedule
+     * keeps BraucienaLaikuMatrica.BEZ_TIKLA, so different stations are
+     * MIN_NEZINAMS_LAIKS apart.
+     * 
+     * Synchronized and a no-op once the matrix is there, so every portfolio member
+     * can call it on the problem they share.
+     */
+    public synchronized void buildBraucienaLaikuMatrica() {
+        StacijuTikls tikls = getStacijuTikls();
+        BraucienaLaikuMatrica matrica = tikls != null ? tikls.getBraucienaLaikuMatrica() : BraucienaLaikuMatrica.BEZ_TIKLA;
+        if (matrica != braucienaLaikuMatrica) {
+            useBraucienaLaikuMatrica(matrica);
+        }
+    }
+    
+    private void useBraucienaLaikuMatrica(BraucienaLaikuMatrica matrica) {
+        braucienaLaikuMatrica = matrica;
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setMaxBraucienaLaiks(matrica.getMaxBraucienaLaiks(atiesanasLaiks.getStacijasIdx()));
+        }
+    }
+    
+    /**
+     * Replaces the stations by those of a StacijuTikls of their own and builds the indices
+     * again, like RollingStockStationNetworkStore.share() without sharing the network with
+     * other schedules: for solving without the store (benchmarks, tests).
+     */
+    public void buildStacijuTikls() {
+        stacijas = StacijuTikls.of(stacijas).toStacijas(stacijas);
+        buildIndices();
+    }
+    
+    /**
+     * @return the network all stations are on, in its order, or null if they are not shared
+     */
+    private StacijuTikls getStacijuTikls() {
+        StacijuTikls tikls = stacijas == null || stacijas.isEmpty() ? null : stacijas.get(0).getTikls();
+        if (tikls == null || tikls.getStacijuSkaits() != stacijas.size()) {
+            return null;
+        }
+        for (int i = 0; i < stacijas.size(); i++) {
+            if (stacijas.get(i).getTikls() != tikls || stacijas.get(i).getIdx() != i) {
+                return null;
+            }
+        }
+        return tikls;
+    }
+    
+    /**
+     * Pins every assigned departure before the given minute of day (the freeze horizon),
+     * so the solver keeps their trains and only reassigns later departures.
+     * Departures that are already pinned stay pinned; unassigned ones are never pinned.
+     * 
+     * @return the ids of the departures this pinned, see unpinDepartures()
+     */
+    public Set<Long> pinDeparturesBefore(int laiksMinutes) {
+        Set<Long> pinnedIds = new HashSet<>();
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            if (atiesanasLaiks.getVilciens() != null && !atiesanasLaiks.isPinned()
+                    && atiesanasLaiks.getLaiksMinutes() >= 0 && atiesanasLaiks.getLaiksMinutes() < laiksMinutes) {
+                atiesanasLaiks.setPinned(true);
+                pinnedIds.add(atiesanasLaiks.getId());
+            }
+        }
+        return pinnedIds;
+    }
+    
+    /**
+     * Unpins the departures with the given ids (those pinned by an earlier pinDeparturesBefore()),
+     * leaving the other pinned departures pinned
+     */
+    public void unpinDepartures(Set<Long> atiesanasLaikuIds) {
+        if (atiesanasLaikuIds.isEmpty()) {
+            return;
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            if (atiesanasLaikuIds.contains(atiesanasLaiks.getId())) {
+                atiesanasLaiks.setPinned(false);
+            }
+        }
+    }
+    
+    private static int indexOf(Map<Long, Integer> idxById, Long id) {
+        return idxById.computeIfAbsent(id, key -> idxById.size());
+    }
+    
     // Getters and setters
     public List<Vilciens> getVilcieni() {
         return vilcieni;
@@ -173,6 +347,24 @@ public class RollingStockSchedule {
         this.konfiguracija = konfiguracija;
     }
     
+    @JsonIgnore
+    public CilvekuPieprasijumuIndekss getCilvekuPieprasijumuIndekss() {
+        return cilvekuPieprasijumuIndekss;
+    }
+    
+    public void setCilvekuPieprasijumuIndekss(CilvekuPieprasijumuIndekss cilvekuPieprasijumuIndekss) {
+        this.cilvekuPieprasijumuIndekss = cilvekuPieprasijumuIndekss;
+    }
+    
+    @JsonIgnore
+    public BraucienaLaikuMatrica getBraucienaLaikuMatrica() {
+        return braucienaLaikuMatrica;
+    }
+    
+    public void setBraucienaLaikuMatrica(BraucienaLaikuMatrica braucienaLaikuMatrica) {
+        this.braucienaLaikuMatrica = braucienaLaikuMatrica;
+    }
+    
     public List<AtiesanasLaiks> getAtiesanasLaiki() {
         return atiesanasLaiki;
     }
@@ -196,4 +388,12 @@ public class RollingStockSchedule {
     public void setSolverStatus(SolverStatus solverStatus) {
         this.solverStatus = solverStatus;
     }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
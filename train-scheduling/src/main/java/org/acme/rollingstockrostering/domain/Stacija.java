@@ -3,11 +3,16 @@ package org.acme.rollingstockrostering.domain;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * Stacija (Station) - Problem Fact
  * 
  * Represents a train station with its location and neighboring stations.
  * This is a problem fact used by the constraints to validate routes.
+ * 
+ * A station of a shared StacijuTikls keeps only its id and name on the heap:
+ * its coordinates and neighbours are read from the network, and cannot be changed.
  */
 public class Stacija {
     
@@ -15,6 +20,9 @@ public class Stacija {
     private String nosaukums; // Station name
     private GeoCoordinates koordinatas; // Geographic coordinates
     private List<Long> kaiminiStacijas; // Neighbor station IDs
+    private int idx = -1; // Dense index, see RollingStockSchedule.buildIndices()
+    private StacijuTikls tikls; // Not null = coordinates and neighbours are in the shared network
+    private int tiklsIdx = -1;
     
     public Stacija() {
         this.kaiminiStacijas = new ArrayList<>();
@@ -27,15 +35,35 @@ public class Stacija {
         this.kaiminiStacijas = new ArrayList<>();
     }
     
+    /**
+     * Station tiklsIdx of the shared network, see RollingStockStationNetworkStore
+     */
+    public Stacija(StacijuTikls tikls, int tiklsIdx, String nosaukums) {
+        this.id = tikls.getId(tiklsIdx);
+        this.nosaukums = nosaukums;
+        this.tikls = tikls;
+        this.tiklsIdx = tiklsIdx;
+    }
+    
     // Getters and setters
     public Long getId() {
         return id;
     }
     
     public void setId(Long id) {
+        checkNotShared();
         this.id = id;
     }
     
+    @JsonIgnore
+    public int getIdx() {
+        return idx;
+    }
+    
+    public void setIdx(int idx) {
+        this.idx = idx;
+    }
+    
     public String getNosaukums() {
         return nosaukums;
     }
@@ -44,28 +72,80 @@ public class Stacija {
         this.nosaukums = nosaukums;
     }
     
+    /**
+     * For a station of a shared network a new GeoCoordinates on every call, see distanceKm()
+     */
     public GeoCoordinates getKoordinatas() {
+        if (tikls != null) {
+            double latitude = tikls.getLatitude(tiklsIdx);
+            return Double.isNaN(latitude) ? null : new GeoCoordinates(latitude, tikls.getLongitude(tiklsIdx));
+        }
         return koordinatas;
     }
     
     public void setKoordinatas(GeoCoordinates koordinatas) {
+        checkNotShared();
         this.koordinatas = koordinatas;
     }
     
+    /**
+     * For a station of a shared network an unmodifiable copy
+     */
     public List<Long> getKaiminiStacijas() {
+        if (tikls != null) {
+            Long[] kaimini = new Long[tikls.getKaiminuSkaits(tiklsIdx)];
+            for (int k = 0; k < kaimini.length; k++) {
+                kaimini[k] = tikls.getId(tikls.getKaimins(tiklsIdx, k));
+            }
+            return List.of(kaimini);
+        }
         return kaiminiStacijas;
     }
     
     public void setKaiminiStacijas(List<Long> kaiminiStacijas) {
+        checkNotShared();
         this.kaiminiStacijas = kaiminiStacijas;
     }
     
+    /**
+     * @return the network this station is part of, or null if it is not shared
+     */
+    @JsonIgnore
+    public StacijuTikls getTikls() {
+        return tikls;
+    }
+    
+    /**
+     * Great-circle distance to the other station in kilometres, without allocating
+     * if both are stations of the same shared network
+     * 
+     * @return NaN if one of them has no coordinates
+     */
+    public double distanceKm(Stacija other) {
+        if (tikls != null && tikls == other.tikls) {
+            return tikls.distanceKm(tiklsIdx, other.tiklsIdx);
+        }
+        GeoCoordinates koordinatasA = getKoordinatas();
+        GeoCoordinates koordinatasB = other.getKoordinatas();
+        if (koordinatasA == null || koordinatasB == null) {
+            return Double.NaN;
+        }
+        return koordinatasA.distanceTo(koordinatasB);
+    }
+    
+    private void checkNotShared() {
+        if (tikls != null) {
+            throw new UnsupportedOperationException(
+                    "The station (" + id + ") is part of a shared network and cannot be changed.");
+        }
+    }
+    
     @Override
     public String toString() {
         return "Stacija{" +
                 "id=" + id +
                 ", nosaukums='" + nosaukums + '\'' +
-                ", koordinatas=" + koordinatas +
+                ", koordinatas=" + getKoordinatas() +
                 '}';
     }
 }
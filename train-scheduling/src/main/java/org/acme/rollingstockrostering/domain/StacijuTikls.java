@@ -0,0 +1,328 @@
+package org.acme.rollingstockrostering.domain;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Staciju tīkls (StationNetwork) - Immutable, shareable station graph outside of the heap
+ * 
+ * The station ids, coordinates and neighbours of a schedule in one ByteBuffer:
+ * a direct (off-heap) buffer, or a read-only memory-mapped file. The neighbours are
+ * a CSR adjacency (compressed sparse row): the neighbours of station idx are
+ * kaimini[kaiminuSakums[idx] .. kaiminuSakums[idx + 1]), as station indices.
+ * 
+ * The station indices are dense, in order of first occurrence in stacijas, like
+ * RollingStockSchedule.buildIndices() assigns them. Neighbour ids that are not a
+ * station of the network are dropped. Stations without coordinates have NaN.
+ * 
+ * Layout (big-endian):
+ *   int MAGIC, int stacijuSkaits (n), int kaiminuSkaits (m)
+ *   long[n] ids, double[n] latitudes, double[n] longitudes
+ *   int[n + 1] kaiminuSakums, int[m] kaimini
+ *   long[n] sorted ids, int[n] their station indices (lookup by id)
+ * 
+ * Every job with the same network shares one instance (and its BraucienaLaikuMatrica),
+ * see RollingStockStationNetworkStore and Stacija(StacijuTikls, int, String).
+ * All reads are absolute, so it is thread-safe.
+ */
+public final class StacijuTikls {
+    
+    public static final int MAGIC = 0x53544b4c; // "STKL"
+    
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    
+    private final ByteBuffer buffer;
+    private final boolean mapped;
+    private final int stacijuSkaits;
+    private final int idsOffset;
+    private final int latitudesOffset;
+    private final int longitudesOffset;
+    private final int kaiminuSakumsOffset;
+    private final int kaiminiOffset;
+    private final int sortedIdsOffset;
+    private final int sortedIdxOffset;
+    
+    private volatile BraucienaLaikuMatrica braucienaLaikuMatrica; // Computed when first needed
+    
+    private StacijuTikls(ByteBuffer buffer, boolean mapped) throws StreamCorruptedException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new StreamCorruptedException("Not a station network.");
+        }
+        this.buffer = buffer;
+        this.mapped = mapped;
+        this.stacijuSkaits = buffer.getInt(Integer.BYTES);
+        int kaiminuSkaits = buffer.getInt(2 * Integer.BYTES);
+        idsOffset = HEADER_BYTES;
+        latitudesOffset = idsOffset + stacijuSkaits * Long.BYTES;
+        longitudesOffset = latitudesOffset + stacijuSkaits * Double.BYTES;
+        kaiminuSakumsOffset = longitudesOffset + stacijuSkaits * Double.BYTES;
+        kaiminiOffset = kaiminuSakumsOffset + (stacijuSkaits + 1) * Integer.BYTES;
+        sortedIdsOffset = kaiminiOffset + kaiminuSkaits * Integer.BYTES;
+        sortedIdxOffset = sortedIdsOffset + stacijuSkaits * Long.BYTES;
+        if (stacijuSkaits < 0 || kaiminuSkaits < 0
+                || buffer.capacity() != byteSize(stacijuSkaits, kaiminuSkaits)) {
+            throw new StreamCorruptedException("The station network has the wrong size.");
+        }
+    }
+    
+    /**
+     * Builds the network of the stations in a heap buffer, see toDirect() to move it off the heap
+     */
+    public static StacijuTikls of(List<Stacija> stacijas) {
+        Map<Long, Integer> idxById = new HashMap<>();
+        List<Stacija> unikalas = new ArrayList<>();
+        for (Stacija stacija : stacijas) {
+            if (idxById.putIfAbsent(stacija.getId(), idxById.size()) == null) {
+                unikalas.add(stacija);
+            }
+        }
+        int n = unikalas.size();
+        int[] kaiminuSakums = new int[n + 1];
+        List<Integer> kaimini = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            kaiminuSakums[i] = kaimini.size();
+            List<Long> kaiminiStacijas = unikalas.get(i).getKaiminiStacijas();
+            if (kaiminiStacijas != null) {
+                for (Long kaiminsId : kaiminiStacijas) {
+                    Integer kaiminsIdx = idxById.get(kaiminsId);
+                    if (kaiminsIdx != null) {
+                        kaimini.add(kaiminsIdx);
+                    }
+                }
+            }
+        }
+        kaiminuSakums[n] = kaimini.size();
+        
+        long byteSize = byteSize(n, kaimini.size());
+        if (byteSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The station network is too large (" + byteSize + " bytes).");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) byteSize);
+        buffer.putInt(MAGIC).putInt(n).putInt(kaimini.size());
+        for (Stacija stacija : unikalas) {
+            buffer.putLong(stacija.getId());
+        }
+        for (Stacija stacija : unikalas) {
+            buffer.putDouble(stacija.getKoordinatas() != null ? stacija.getKoordinatas().getLatitude() : Double.NaN);
+        }
+        for (Stacija stacija : unikalas) {
+            buffer.putDouble(stacija.getKoordinatas() != null ? stacija.getKoordinatas().getLongitude() : Double.NaN);
+        }
+        for (int sakums : kaiminuSakums) {
+            buffer.putInt(sakums);
+        }
+        for (int kaiminsIdx : kaimini) {
+            buffer.putInt(kaiminsIdx);
+        }
+        long[] sortedIds = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedIds[i] = unikalas.get(i).getId();
+        }
+        Arrays.sort(sortedIds);
+        for (long id : sortedIds) {
+            buffer.putLong(id);
+        }
+        for (long id : sortedIds) {
+            buffer.putInt(idxById.get(id));
+        }
+        try {
+            return new StacijuTikls(buffer.clear(), false);
+        } catch (StreamCorruptedException e) {
+            throw new IllegalStateException("Impossible state: the network was just built.", e);
+        }
+    }
+    
+    /**
+     * The stations of this network, one per index, that read their coordinates and
+     * neighbours from it. The name of every station is that of the first station in
+     * stacijas with its id, like of() takes the first.
+     */
+    public List<Stacija> toStacijas(List<Stacija> stacijas) {
+        String[] nosaukumi = new String[stacijuSkaits];
+        boolean[] found = new boolean[stacijuSkaits];
+        for (Stacija stacija : stacijas) {
+            int idx = getIdx(stacija.getId());
+            if (idx >= 0 && !found[idx]) {
+                found[idx] = true;
+                nosaukumi[idx] = stacija.getNosaukums();
+            }
+        }
+        Stacija[] tiklaStacijas = new Stacija[stacijuSkaits];
+        for (int idx = 0; idx < stacijuSkaits; idx++) {
+            tiklaStacijas[idx] = new Stacija(this, idx, nosaukumi[idx]);
+        }
+        return List.of(tiklaStacijas);
+    }
+    
+    /**
+     * Maps a network written by write(Path) read-only into memory.
+     * The pages are shared with every other mapping of the file, also by other processes.
+     */
+    public static StacijuTikls map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new StreamCorruptedException("The station network has the wrong size.");
+            }
+            // The mapping stays valid after the channel is closed
+            return new StacijuTikls(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), true);
+        }
+    }
+    
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer content = buffer.duplicate().clear();
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+    
+    /**
+     * @return the same network in a direct buffer, outside of the heap
+     */
+    public StacijuTikls toDirect() {
+        if (buffer.isDirect()) {
+            return this;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(buffer.capacity());
+        direct.put(buffer.duplicate().clear()).clear();
+        try {
+            return new StacijuTikls(direct, false);
+        } catch (StreamCorruptedException e) {
+            throw new IllegalStateException("Impossible state: the network was copied.", e);
+        }
+    }
+    
+    /**
+     * @return a read-only view of the whole content, e.g. to compare or hash networks
+     */
+    public ByteBuffer getContent() {
+        return buffer.asReadOnlyBuffer().clear();
+    }
+    
+    public int getStacijuSkaits() {
+        return stacijuSkaits;
+    }
+    
+    public long getId(int idx) {
+        return buffer.getLong(idsOffset + checkIdx(idx) * Long.BYTES);
+    }
+    
+    /**
+     * @return the dense index of the station, or -1 if it is not in the network
+     */
+    public int getIdx(long id) {
+        int low = 0;
+        int high = stacijuSkaits - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = buffer.getLong(sortedIdsOffset + middle * Long.BYTES);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return buffer.getInt(sortedIdxOffset + middle * Integer.BYTES);
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * @return NaN if the station has no coordinates
+     */
+    public double getLatitude(int idx) {
+        return buffer.getDouble(latitudesOffset + checkIdx(idx) * Double.BYTES);
+    }
+    
+    /**
+     * @return NaN if the station has no coordinates
+     */
+    public double getLongitude(int idx) {
+        return buffer.getDouble(longitudesOffset + checkIdx(idx) * Double.BYTES);
+    }
+    
+    public int getKaiminuSkaits(int idx) {
+        int sakums = buffer.getInt(kaiminuSakumsOffset + checkIdx(idx) * Integer.BYTES);
+        return buffer.getInt(kaiminuSakumsOffset + (idx + 1) * Integer.BYTES) - sakums;
+    }
+    
+    /**
+     * @param k 0 to getKaiminuSkaits(idx) - 1
+     * @return the station index of the k-th neighbour
+     */
+    public int getKaimins(int idx, int k) {
+        if (k < 0 || k >= getKaiminuSkaits(idx)) {
+            throw new IndexOutOfBoundsException("Neighbour (" + k + ") of station index (" + idx + ").");
+        }
+        int sakums = buffer.getInt(kaiminuSakumsOffset + idx * Integer.BYTES);
+        return buffer.getInt(kaiminiOffset + (sakums + k) * Integer.BYTES);
+    }
+    
+    /**
+     * @return whether getBraucienaLaikuMatrica() has already been computed
+     */
+    public boolean hasBraucienaLaikuMatrica() {
+        return braucienaLaikuMatrica != null;
+    }
+    
+    /**
+     * The travel times of this network, computed when first needed and then shared by every schedule on it.
+     * These are stations² ints, see RollingStockSchedule.buildBraucienaLaikuMatrica().
+     */
+    public BraucienaLaikuMatrica getBraucienaLaikuMatrica() {
+        BraucienaLaikuMatrica matrica = braucienaLaikuMatrica;
+        if (matrica == null) {
+            synchronized (this) {
+                matrica = braucienaLaikuMatrica;
+                if (matrica == null) {
+                    matrica = BraucienaLaikuMatrica.of(this);
+                    braucienaLaikuMatrica = matrica;
+                }
+            }
+        }
+        return matrica;
+    }
+    
+    /**
+     * Great-circle distance between the stations in kilometres, see GeoCoordinates.distanceTo()
+     *
+     * @return NaN if one of them has no coordinates
+     */
+    public double distanceKm(int idxA, int idxB) {
+        return GeoCoordinates.distanceKm(getLatitude(idxA), getLongitude(idxA),
+                getLatitude(idxB), getLongitude(idxB));
+    }
+    
+    private int checkIdx(int idx) {
+        if (idx < 0 || idx >= stacijuSkaits) {
+            throw new IndexOutOfBoundsException("Station index (" + idx + ") of (" + stacijuSkaits + ").");
+        }
+        return idx;
+    }
+    
+    private static long byteSize(long stacijuSkaits, long kaiminuSkaits) {
+        return HEADER_BYTES + stacijuSkaits * (Long.BYTES + 2 * Double.BYTES + Integer.BYTES + Long.BYTES
+                + Integer.BYTES) + Integer.BYTES + kaiminuSkaits * Integer.BYTES;
+    }
+    
+    @Override
+    public String toString() {
+        return "StacijuTikls{" +
+                "stacijas=" + stacijuSkaits +
+                ", kaimini=" + buffer.getInt(2 * Integer.BYTES) +
+                ", buffer=" + (mapped ? "mapped"
+                        : buffer.isDirect() ? "direct" : "heap") +
+                '}';
+    }
+}
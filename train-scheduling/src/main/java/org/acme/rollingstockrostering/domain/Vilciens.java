@@ -1,5 +1,9 @@
 package org.acme.rollingstockrostering.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import ai.timefold.solver.core.api.domain.lookup.PlanningId;
+
 /**
  * Vilciens (Train) - Problem Fact
  * 
@@ -9,8 +13,10 @@ package org.acme.rollingstockrostering.domain;
  */
 public class Vilciens {
     
+    @PlanningId // Problem changes look up the working train by its id
     private Long id;
     private int kapacitate; // Passenger capacity
+    private int idx = -1; // Dense index, see RollingStockSchedule.buildIndices()
     
     // No-arg constructor required by Timefold
     public Vilciens() {
@@ -30,6 +36,15 @@ public class Vilciens {
         this.id = id;
     }
     
+    @JsonIgnore
+    public int getIdx() {
+        return idx;
+    }
+    
+    public void setIdx(int idx) {
+        this.idx = idx;
+    }
+    
     public int getKapacitate() {
         return kapacitate;
     }
@@ -0,0 +1,59 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.util.List;
+import java.util.Map;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+
+/**
+ * BestSolutionEvent - Server-Sent Event sent when a job finds a new best solution
+ * 
+ * Only carries the score and the assignments that changed
+ * (departure id -> train id, null if unassigned) and the ids of the departures
+ * cancelled since the previous event, not the whole schedule.
+ * The first event of a stream is a full snapshot of all assignments.
+ */
+public class BestSolutionEvent {
+    
+    private final long version; // Best solution version of the job, increases with every new best solution
+    private final HardSoftScore score;
+    private final SolverStatus solverStatus;
+    private final boolean snapshot; // True if assignments contains all departures, not just the changed ones
+    private final Map<Long, Long> assignments; // Departure id -> train id
+    private final List<Long> removed; // Ids of the cancelled departures, empty in a snapshot
+    
+    public BestSolutionEvent(long version, HardSoftScore score, SolverStatus solverStatus,
+                             boolean snapshot, Map<Long, Long> assignments, List<Long> removed) {
+        this.version = version;
+        this.score = score;
+        this.solverStatus = solverStatus;
+        this.snapshot = snapshot;
+        this.assignments = assignments;
+        this.removed = removed;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public HardSoftScore getScore() {
+        return score;
+    }
+    
+    public SolverStatus getSolverStatus() {
+        return solverStatus;
+    }
+    
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+    
+    public Map<Long, Long> getAssignments() {
+        return assignments;
+    }
+    
+    public List<Long> getRemoved() {
+        return removed;
+    }
+}
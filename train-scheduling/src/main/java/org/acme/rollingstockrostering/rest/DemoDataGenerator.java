@@ -5,7 +5,9 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import jakarta.enterprise.context.ApplicationScoped;
 
@@ -21,44 +23,102 @@ import org.acme.rollingstockrostering.domain.*;
  * - 2-3 depots
  * - Hourly passenger demand
  * - Unassigned departure times (planning entities)
+ * 
+ * Every dataset is generated from its own seed with a SplittableRandom that is
+ * passed through (split once per route), so it only depends on that seed,
+ * also when several datasets are generated at the same time. The demand and
+ * departures of the routes are generated in parallel.
+ * 
+ * generateDemoData() generates the default dataset only once: every call shares
+ * its stations, routes, depots and demand (which are never changed in place)
+ * and only gets its own trains (their index depends on the job) and fresh,
+ * unassigned departures.
  */
 @ApplicationScoped
 public class DemoDataGenerator {
     
-    private static final Random RANDOM = new Random(37); // Fixed seed for reproducibility
+    private static final long DEFAULT_SEED = 37L; // Fixed seed for reproducibility
+    
+    private volatile RollingStockSchedule defaultDataset; // Generated on first use
     
     /**
-     * Generates a complete RollingStockSchedule with demo data
+     * Returns a complete RollingStockSchedule with demo data
      */
     public RollingStockSchedule generateDemoData() {
-        return generateDefaultDataset();
+        RollingStockSchedule dataset = defaultDataset;
+        if (dataset == null) {
+            synchronized (this) {
+                dataset = defaultDataset;
+                if (dataset == null) {
+                    dataset = generateDefaultDataset();
+                    defaultDataset = dataset;
+                }
+            }
+        }
+        return copyWithNewAtiesanasLaiki(dataset);
+    }
+    
+    /**
+     * Shares the problem facts of the dataset, but with new trains and unassigned departures.
+     * The fact lists are copied, since problem changes add and remove facts.
+     */
+    private static RollingStockSchedule copyWithNewAtiesanasLaiki(RollingStockSchedule dataset) {
+        List<Vilciens> vilcieni = new ArrayList<>(dataset.getVilcieni().size());
+        for (Vilciens original : dataset.getVilcieni()) {
+            vilcieni.add(new Vilciens(original.getId(), original.getKapacitate()));
+        }
+        List<AtiesanasLaiks> atiesanasLaiki = new ArrayList<>(dataset.getAtiesanasLaiki().size());
+        for (AtiesanasLaiks original : dataset.getAtiesanasLaiki()) {
+            AtiesanasLaiks atiesanasLaiks = new AtiesanasLaiks(original.getId(), original.getStacijasId(),
+                    original.getMarsrutaId(), original.getLaiks(), original.getCilvekuDelta());
+            atiesanasLaiks.setStacijasIdx(original.getStacijasIdx());
+            atiesanasLaiks.setMarsrutaIdx(original.getMarsrutaIdx());
+            atiesanasLaiks.setMarsrutaPozicija(original.getMarsrutaPozicija());
+            atiesanasLaiks.setMaxBraucienaLaiks(original.getMaxBraucienaLaiks());
+            atiesanasLaiks.setStacija(original.getStacija());
+            atiesanasLaiki.add(atiesanasLaiks);
+        }
+        RollingStockSchedule schedule = new RollingStockSchedule(
+                vilcieni,
+                dataset.getStacijas(),
+                dataset.getMarsruti(),
+                new ArrayList<>(dataset.getDepo()),
+                new ArrayList<>(dataset.getCilvekuPieprasijumi()),
+                dataset.getKonfiguracija(),
+                atiesanasLaiki
+        );
+        schedule.setCilvekuPieprasijumuIndekss(dataset.getCilvekuPieprasijumuIndekss());
+        schedule.setBraucienaLaikuMatrica(dataset.getBraucienaLaikuMatrica());
+        return schedule;
     }
     
     /**
      * Generates default size dataset (99 departures)
      */
     public static RollingStockSchedule generateDefaultDataset() {
-        return generateDataset(6, 22, 2); // 6 AM to 10 PM, every 2 hours
+        return generateDataset(6, 22, 2, DEFAULT_SEED); // 6 AM to 10 PM, every 2 hours
     }
     
     /**
      * Generates small dataset for quick testing (50 departures)
      */
     public static RollingStockSchedule generateSmallDataset() {
-        return generateDataset(8, 18, 2); // 8 AM to 6 PM, every 2 hours
+        return generateDataset(8, 18, 2, DEFAULT_SEED); // 8 AM to 6 PM, every 2 hours
     }
     
     /**
      * Generates large dataset for stress testing (200 departures)
      */
     public static RollingStockSchedule generateLargeDataset() {
-        return generateDataset(6, 22, 1); // 6 AM to 10 PM, every hour
+        return generateDataset(6, 22, 1, DEFAULT_SEED); // 6 AM to 10 PM, every hour
     }
     
     /**
-     * Generates dataset with configurable time range
+     * Generates dataset with configurable time range, reproducible from the seed alone
      */
-    private static RollingStockSchedule generateDataset(int startHour, int endHour, int intervalHours) {
+    public static RollingStockSchedule generateDataset(int startHour, int endHour, int intervalHours, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        
         // Create configuration
         Konfiguracija konfiguracija = new Konfiguracija(
                 Duration.ofMinutes(5), // Minimum 5 minutes between trains
@@ -79,7 +139,7 @@ public class DemoDataGenerator {
         
         // Create passenger demand
         List<CilvekuPieprasijums> cilvekuPieprasijumi = generateCilvekuPieprasijums(
-                stacijas, marsruti
+                stacijas, marsruti, random
         );
         
         // Create unassigned departure times (planning entities)
@@ -87,7 +147,7 @@ public class DemoDataGenerator {
                 stacijas, marsruti, cilvekuPieprasijumi, startHour, endHour, intervalHours
         );
         
-        return new RollingStockSchedule(
+        RollingStockSchedule schedule = new RollingStockSchedule(
                 vilcieni,
                 stacijas,
                 marsruti,
@@ -96,6 +156,8 @@ public class DemoDataGenerator {
                 konfiguracija,
                 atiesanasLaiki
         );
+        schedule.buildIndices();
+        return schedule;
     }
     
     /**
@@ -534,51 +596,66 @@ public class DemoDataGenerator {
     
     /**
      * Generate hourly passenger demand (6 AM to 10 PM)
+     * 
+     * Every route gets its own split of the random, so the routes can be generated in parallel
      */
     private static List<CilvekuPieprasijums> generateCilvekuPieprasijums(
-            List<Stacija> stacijas, List<Marsruts> marsruti) {
-        List<CilvekuPieprasijums> pieprasijumi = new ArrayList<>();
-        long id = 1L;
+            List<Stacija> stacijas, List<Marsruts> marsruti, SplittableRandom random) {
+        List<SplittableRandom> marsrutuRandoms = new ArrayList<>(marsruti.size());
+        for (int i = 0; i < marsruti.size(); i++) {
+            marsrutuRandoms.add(random.split());
+        }
         
         // Generate demand for each route and station
-        for (Marsruts marsruts : marsruti) {
-            for (Long stacijaId : marsruts.getStacijas()) {
-                // Generate hourly demand from 6 AM to 10 PM
-                for (int hour = 6; hour <= 22; hour++) {
-                    int demand = generateDemand(marsruts.getId(), hour);
-                    pieprasijumi.add(new CilvekuPieprasijums(
-                            id++,
-                            stacijaId,
-                            marsruts.getId(),
-                            LocalTime.of(hour, 0),
-                            demand
-                    ));
-                }
-            }
-        }
+        List<CilvekuPieprasijums> pieprasijumi = IntStream.range(0, marsruti.size()).parallel()
+                .mapToObj(i -> {
+                    Marsruts marsruts = marsruti.get(i);
+                    SplittableRandom marsrutaRandom = marsrutuRandoms.get(i);
+                    List<CilvekuPieprasijums> marsrutaPieprasijumi = new ArrayList<>();
+                    for (Long stacijaId : marsruts.getStacijas()) {
+                        // Generate hourly demand from 6 AM to 10 PM
+                        for (int hour = 6; hour <= 22; hour++) {
+                            int demand = generateDemand(marsrutaRandom, hour);
+                            marsrutaPieprasijumi.add(new CilvekuPieprasijums(
+                                    null, // Numbered below, in route order
+                                    stacijaId,
+                                    marsruts.getId(),
+                                    LocalTime.of(hour, 0),
+                                    demand
+                            ));
+                        }
+                    }
+                    return marsrutaPieprasijumi;
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(ArrayList::new));
         
+        long id = 1L;
+        for (CilvekuPieprasijums pieprasijums : pieprasijumi) {
+            pieprasijums.setId(id++);
+        }
         return pieprasijumi;
     }
     
     /**
      * Generate realistic passenger demand based on route and time
      */
-    private static int generateDemand(Long marsrutaId, int hour) {
+    private static int generateDemand(SplittableRandom random, int hour) {
         // Morning rush hour (7-9 AM)
         if (hour >= 7 && hour <= 9) {
-            return 50 + RANDOM.nextInt(100); // 50-150 passengers
+            return 50 + random.nextInt(100); // 50-150 passengers
         }
         // Evening rush hour (5-7 PM)
         else if (hour >= 17 && hour <= 19) {
-            return 40 + RANDOM.nextInt(80); // 40-120 passengers
+            return 40 + random.nextInt(80); // 40-120 passengers
         }
         // Mid-day
         else if (hour >= 10 && hour <= 16) {
-            return 20 + RANDOM.nextInt(40); // 20-60 passengers
+            return 20 + random.nextInt(40); // 20-60 passengers
         }
         // Early morning / late evening
         else {
-            return 10 + RANDOM.nextInt(20); // 10-30 passengers
+            return 10 + random.nextInt(20); // 10-30 passengers
         }
     }
     
@@ -594,41 +671,49 @@ public class DemoDataGenerator {
             int startHour,
             int endHour,
             int intervalHours) {
-        List<AtiesanasLaiks> atiesanasLaiki = new ArrayList<>();
-        long id = 1L;
+        CilvekuPieprasijumuIndekss indekss = CilvekuPieprasijumuIndekss.of(stacijas, marsruti, cilvekuPieprasijumi);
         
-        // Generate departures for each route with time offsets to avoid conflicts
-        for (Marsruts marsruts : marsruti) {
-            int offsetMinutes = getRouteOffset(marsruts.getId());
-            
-            // Generate departures with specified time range and interval
-            for (int hour = startHour; hour <= endHour; hour += intervalHours) {
-                LocalTime startTime = LocalTime.of(hour, offsetMinutes);
-                
-                // Create departure for each station on the route with progressive times
-                int stationIndex = 0;
-                for (Long stacijaId : marsruts.getStacijas()) {
-                    // Add travel time between stations (30 minutes per station hop)
-                    LocalTime stationTime = startTime.plusMinutes(stationIndex * 30L);
-                    
-                    int cilvekuDelta = getExpectedPassengers(
-                            stacijaId, marsruts.getId(), stationTime, cilvekuPieprasijumi
-                    );
-                    
-                    atiesanasLaiki.add(new AtiesanasLaiks(
-                            id++,
-                            stacijaId,
-                            marsruts.getId(),
-                            stationTime,
-                            cilvekuDelta
-                    ));
-                    // vilciensId is null (unassigned) - Timefold will assign it
+        // Generate departures for each route (in parallel) with time offsets to avoid conflicts
+        List<AtiesanasLaiks> atiesanasLaiki = marsruti.parallelStream()
+                .map(marsruts -> {
+                    List<AtiesanasLaiks> marsrutaAtiesanasLaiki = new ArrayList<>();
+                    int offsetMinutes = getRouteOffset(marsruts.getId());
                     
-                    stationIndex++;
-                }
-            }
-        }
+                    // Generate departures with specified time range and interval
+                    for (int hour = startHour; hour <= endHour; hour += intervalHours) {
+                        LocalTime startTime = LocalTime.of(hour, offsetMinutes);
+                        
+                        // Create departure for each station on the route with progressive times
+                        int stationIndex = 0;
+                        for (Long stacijaId : marsruts.getStacijas()) {
+                            // Add travel time between stations (30 minutes per station hop)
+                            LocalTime stationTime = startTime.plusMinutes(stationIndex * 30L);
+                            
+                            int cilvekuDelta = indekss.getCilvekuSkaits(
+                                    stacijaId, marsruts.getId(), stationTime.getHour()
+                            );
+                            
+                            marsrutaAtiesanasLaiki.add(new AtiesanasLaiks(
+                                    null, // Numbered below, in route order
+                                    stacijaId,
+                                    marsruts.getId(),
+                                    stationTime,
+                                    cilvekuDelta
+                            ));
+                            // vilciensId is null (unassigned) - Timefold will assign it
+                            
+                            stationIndex++;
+                        }
+                    }
+                    return marsrutaAtiesanasLaiki;
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(ArrayList::new));
         
+        long id = 1L;
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setId(id++);
+        }
         return atiesanasLaiki;
     }
     
@@ -643,6 +728,7 @@ public class DemoDataGenerator {
             List<CilvekuPieprasijums> cilvekuPieprasijumi) {
         List<AtiesanasLaiks> atiesanasLaiki = new ArrayList<>();
         long id = 1L;
+        CilvekuPieprasijumuIndekss indekss = CilvekuPieprasijumuIndekss.of(stacijas, marsruti, cilvekuPieprasijumi);
         
         // Generate departures for each route with time offsets to avoid conflicts
         for (Marsruts marsruts : marsruti) {
@@ -654,8 +740,8 @@ public class DemoDataGenerator {
                 
                 // Create departure for each station on the route
                 for (Long stacijaId : marsruts.getStacijas()) {
-                    int cilvekuDelta = getExpectedPassengers(
-                            stacijaId, marsruts.getId(), laiks, cilvekuPieprasijumi
+                    int cilvekuDelta = indekss.getCilvekuSkaits(
+                            stacijaId, marsruts.getId(), laiks.getHour()
                     );
                     
                     atiesanasLaiki.add(new AtiesanasLaiks(
@@ -686,19 +772,4 @@ public class DemoDataGenerator {
             default: return 0;
         }
     }
-    
-    /**
-     * Get expected passengers for a departure based on demand
-     */
-    private static int getExpectedPassengers(Long stacijaId, Long marsrutaId, LocalTime laiks,
-                                       List<CilvekuPieprasijums> cilvekuPieprasijumi) {
-        // Find matching demand (simplified: use exact hour match)
-        return cilvekuPieprasijumi.stream()
-                .filter(p -> p.getStacijasId().equals(stacijaId))
-                .filter(p -> p.getMarsrutaId().equals(marsrutaId))
-                .filter(p -> p.getStunda().getHour() == laiks.getHour())
-                .mapToInt(CilvekuPieprasijums::getCilvekuSkaits)
-                .findFirst()
-                .orElse(0);
-    }
 }
@@ -0,0 +1,145 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * RequestBodyLimitFilter - Request body limits per endpoint
+ * 
+ * quarkus.http.limits.max-body-size is one limit for all endpoints, raised for the timetables
+ * of POST .../jobs/import (see application.properties). This filter keeps every other body
+ * within rolling-stock.max-body-size before it is bound, e.g. the schedule of POST .../jobs,
+ * and the import body within rolling-stock.jobs.import.max-body-size.
+ * A larger body is rejected with 413: up front by its Content-Length, or once that many bytes
+ * have been read if it is sent without one.
+ */
+@Provider
+public class RequestBodyLimitFilter
+        implements ContainerRequestFilter, ExceptionMapper<RequestBodyLimitFilter.BodyTooLargeException> {
+    
+    static final String IMPORT_PATH = "/jobs/import";
+    
+    @ConfigProperty(name = "rolling-stock.max-body-size", defaultValue = "10240K")
+    MemorySize maxBodySize;
+    
+    @ConfigProperty(name = "rolling-stock.jobs.import.max-body-size", defaultValue = "1024M")
+    MemorySize importMaxBodySize;
+    
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        long maxBytes = requestContext.getUriInfo().getPath().endsWith(IMPORT_PATH)
+                ? importMaxBodySize.asLongValue()
+                : maxBodySize.asLongValue();
+        String contentLength = requestContext.getHeaderString(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength != null) {
+            long length;
+            try {
+                length = Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("The Content-Length (" + contentLength + ") is not a number.", e);
+            }
+            if (length > maxBytes) {
+                requestContext.abortWith(tooLarge(maxBytes));
+                return;
+            }
+        }
+        requestContext.setEntityStream(new LimitedInputStream(requestContext.getEntityStream(), maxBytes));
+    }
+    
+    @Override
+    public Response toResponse(BodyTooLargeException e) {
+        return tooLarge(e.getMaxBytes());
+    }
+    
+    private static Response tooLarge(long maxBytes) {
+        return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                .type(MediaType.TEXT_PLAIN)
+                .entity("The request body is larger than " + maxBytes + " bytes.")
+                .build();
+    }
+    
+    /**
+     * Thrown by LimitedInputStream when a body goes over its limit. An IOException,
+     * so Jackson passes it on as is instead of wrapping it into a mapping error.
+     */
+    public static class BodyTooLargeException extends IOException {
+        
+        private final long maxBytes;
+        
+        public BodyTooLargeException(long maxBytes) {
+            super("The request body is larger than " + maxBytes + " bytes.");
+            this.maxBytes = maxBytes;
+        }
+        
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+    }
+    
+    /**
+     * Passes on at most maxBytes bytes of a body and throws BodyTooLargeException
+     * as soon as there is more
+     */
+    static class LimitedInputStream extends FilterInputStream {
+        
+        private final long maxBytes;
+        private long remaining;
+        
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.remaining = maxBytes;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+        
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+        
+        private void count(long bytes) throws BodyTooLargeException {
+            remaining -= bytes;
+            if (remaining < 0) {
+                throw new BodyTooLargeException(maxBytes);
+            }
+        }
+    }
+}
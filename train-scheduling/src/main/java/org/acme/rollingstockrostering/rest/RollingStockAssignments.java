@@ -0,0 +1,51 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.util.Map;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+
+/**
+ * RollingStockAssignments - A schedule without its reference data
+ * 
+ * Only the train of every departure and the score. The stations, routes,
+ * trains and departures themselves are served (and cached) separately
+ * by GET /rolling-stock-schedule/networks/{networkId}.
+ */
+public class RollingStockAssignments {
+    
+    private final String networkId; // See RollingStockNetwork
+    private final long version; // Best solution version
+    private final HardSoftScore score;
+    private final SolverStatus solverStatus;
+    private final Map<Long, Long> assignments; // Departure id -> train id (null if unassigned)
+    
+    public RollingStockAssignments(String networkId, long version, HardSoftScore score,
+                                   SolverStatus solverStatus, Map<Long, Long> assignments) {
+        this.networkId = networkId;
+        this.version = version;
+        this.score = score;
+        this.solverStatus = solverStatus;
+        this.assignments = assignments;
+    }
+    
+    public String getNetworkId() {
+        return networkId;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public HardSoftScore getScore() {
+        return score;
+    }
+    
+    public SolverStatus getSolverStatus() {
+        return solverStatus;
+    }
+    
+    public Map<Long, Long> getAssignments() {
+        return assignments;
+    }
+}
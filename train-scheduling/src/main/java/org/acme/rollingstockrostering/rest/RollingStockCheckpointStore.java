@@ -0,0 +1,237 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.ShutdownEvent;
+
+/**
+ * RollingStockCheckpointStore - Write-behind checkpoints of the best solution of every solving job
+ * 
+ * checkpoint() only remembers the latest best solution of the job; a single background
+ * thread writes the remembered ones every rolling-stock.checkpoint.interval, so all
+ * improvements in between are coalesced into one write and the solver threads never
+ * wait for the disk. Every job has one file in rolling-stock.checkpoint.directory,
+ * replaced atomically, so a crash while writing keeps the previous checkpoint: the ids
+ * of the departures the job froze (their count, then the ids, big-endian) followed by
+ * a RollingStockScheduleSnapshot. The frozen departures are pinned in the snapshot like
+ * the ones the client pinned, so without their ids a resumed job could never unfreeze them.
+ * 
+ * A job that ends (or fails) while the application keeps running has its checkpoint
+ * removed, so after a restart the remaining checkpoints are exactly the jobs that were
+ * still solving, see RollingStockJobService.resumeFromCheckpoints().
+ * Without a directory nothing is written.
+ */
+@ApplicationScoped
+public class RollingStockCheckpointStore {
+    
+    private static final Logger LOGGER = Logger.getLogger(RollingStockCheckpointStore.class);
+    
+    // job-<jobId>-<portfolioSize>.checkpoint
+    private static final Pattern FILE_NAME = Pattern.compile("job-(\\d+)-(\\d+)\\.checkpoint");
+    
+    // Not set = no checkpoints
+    @ConfigProperty(name = "rolling-stock.checkpoint.directory")
+    Optional<String> directoryName;
+    
+    @ConfigProperty(name = "rolling-stock.checkpoint.interval", defaultValue = "10s")
+    Duration interval;
+    
+    // Latest unwritten best solution per job id, replaced by every newer one
+    private final Map<Long, Checkpoint> pending = new ConcurrentHashMap<>();
+    
+    private Path directory;
+    private ScheduledExecutorService writer;
+    
+    /**
+     * A job to resume: its last best solution, portfolio size and the departures it froze,
+     * see RollingStockJob.getFrozenIds()
+     */
+    public record Checkpoint(Long jobId, RollingStockSchedule schedule, int portfolioSize, Set<Long> frozenIds) {
+    }
+    
+    @PostConstruct
+    void startWriter() {
+        if (directoryName.isEmpty()) {
+            return;
+        }
+        directory = Path.of(directoryName.get());
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rolling-stock-checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::writePending, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Writes what is still pending, so a restart resumes from the latest best solutions.
+     * This happens before the solvers are stopped, so those jobs keep their checkpoint.
+     */
+    void stopWriter(@Observes ShutdownEvent event) {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePending();
+    }
+    
+    public boolean isEnabled() {
+        return directory != null;
+    }
+    
+    /**
+     * Remembers the job's new best solution, to be written by the background writer
+     * (replacing any best solution of that job that has not been written yet)
+     */
+    public void checkpoint(RollingStockJob job, RollingStockSchedule schedule) {
+        if (writer != null && !writer.isShutdown()) {
+            pending.put(job.getId(), new Checkpoint(job.getId(), schedule, job.getPortfolioSize(), job.getFrozenIds()));
+        }
+    }
+    
+    /**
+     * Forgets the job's checkpoint, because it is no longer solving
+     * (ignored while shutting down: those jobs are resumed after the restart)
+     */
+    public void remove(Long jobId) {
+        if (writer == null || writer.isShutdown()) {
+            return;
+        }
+        pending.remove(jobId);
+        // On the writer thread, after a write of the same job that may be in progress
+        writer.execute(() -> {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                    "job-" + jobId + "-*.checkpoint")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                LOGGER.warnf(e, "Could not remove the checkpoint of solving job (%d).", jobId);
+            }
+        });
+    }
+    
+    /**
+     * @return the checkpoints in the directory, unreadable ones are skipped
+     */
+    public List<Checkpoint> readAll() {
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return checkpoints;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "job-*.checkpoint")) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                try {
+                    checkpoints.add(read(file, Long.valueOf(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warnf(e, "Skipping the unreadable checkpoint (%s).", file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warnf(e, "Could not list the checkpoints in (%s).", directory);
+        }
+        return checkpoints;
+    }
+    
+    private void writePending() {
+        for (Long jobId : List.copyOf(pending.keySet())) {
+            Checkpoint checkpoint = pending.remove(jobId);
+            if (checkpoint != null) {
+                write(checkpoint);
+            }
+        }
+    }
+    
+    private static Checkpoint read(Path file, Long jobId, int portfolioSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int count = readFully(channel, Integer.BYTES).getInt();
+            if (count < 0 || count > (channel.size() - channel.position()) / Long.BYTES) {
+                throw new StreamCorruptedException("The frozen departure count (" + count + ") does not fit in ("
+                        + file + ").");
+            }
+            ByteBuffer ids = readFully(channel, count * Long.BYTES);
+            Set<Long> frozenIds = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                frozenIds.add(ids.getLong());
+            }
+            return new Checkpoint(jobId, RollingStockScheduleSnapshot.read(channel), portfolioSize,
+                    Set.copyOf(frozenIds));
+        }
+    }
+    
+    private static ByteBuffer readFully(FileChannel channel, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+    
+    private void write(Checkpoint checkpoint) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(
+                    "job-" + checkpoint.jobId() + "-" + checkpoint.portfolioSize() + ".checkpoint");
+            Path temporaryFile = directory.resolve(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer ids = ByteBuffer.allocate(Integer.BYTES + checkpoint.frozenIds().size() * Long.BYTES);
+                ids.putInt(checkpoint.frozenIds().size());
+                for (Long id : checkpoint.frozenIds()) {
+                    ids.putLong(id);
+                }
+                ids.flip();
+                while (ids.hasRemaining()) {
+                    channel.write(ids);
+                }
+                RollingStockScheduleSnapshot.write(checkpoint.schedule(), channel);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // The next best solution is written again
+            LOGGER.warnf(e, "Could not write the checkpoint of solving job (%d).", checkpoint.jobId());
+        }
+    }
+}
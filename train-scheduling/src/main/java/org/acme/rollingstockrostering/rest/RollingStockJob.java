@@ -0,0 +1,276 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+
+import ai.timefold.solver.core.api.solver.SolverStatus;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+
+/**
+ * RollingStockJob - One schedule being (or having been) optimized
+ * 
+ * The job id is also the problem id under which the SolverManager solves it.
+ * Holds the submitted problem and the best solution found so far, and pushes
+ * the assignments that changed with every new best solution to the
+ * subscribers of bestSolutionEvents().
+ * 
+ * Every best solution gets a new version from the service-wide version sequence,
+ * so versions keep increasing across jobs and re-solves. The version in which
+ * each departure's assignment last changed is remembered for getDelta(), as is
+ * the version in which a cancelled departure was removed.
+ */
+public class RollingStockJob {
+    
+    private final Long id;
+    private final RollingStockSchedule problem;
+    private volatile RollingStockNetwork network; // Replaced after every problem change
+    private final LongSupplier versionSequence;
+    private final int portfolioSize; // Number of solvers solving this job in parallel
+    private final long initialVersion; // Version of the problem itself
+    private final Set<Long> frozenIds; // Departures pinned by the freeze horizon of this job, not by the client
+    
+    // Updated from the solver thread by the best solution consumer
+    private volatile RollingStockSchedule bestSolution;
+    private volatile Throwable exception;
+    
+    // Guarded by this
+    private long version;
+    private boolean ended = false;
+    private final Map<Long, Long> assignments = new HashMap<>(); // Departure id -> train id of the best solution
+    private final Map<Long, Long> changeVersions = new HashMap<>(); // Departure id -> version its train last changed
+    private final Map<Long, Long> removeVersions = new HashMap<>(); // Cancelled departure id -> version it was removed
+    private final List<MultiEmitter<? super BestSolutionEvent>> emitters = new CopyOnWriteArrayList<>();
+    
+    public RollingStockJob(Long id, RollingStockSchedule problem, RollingStockNetwork network,
+                           LongSupplier versionSequence, int portfolioSize, Set<Long> frozenIds) {
+        this.id = id;
+        this.problem = problem;
+        this.network = network;
+        this.versionSequence = versionSequence;
+        this.portfolioSize = portfolioSize;
+        this.frozenIds = frozenIds;
+        initialVersion = versionSequence.getAsLong();
+        version = initialVersion;
+        problem.setVersion(version);
+        for (AtiesanasLaiks atiesanasLaiks : problem.getAtiesanasLaiki()) {
+            assignments.put(atiesanasLaiks.getId(), atiesanasLaiks.getVilciensId());
+            changeVersions.put(atiesanasLaiks.getId(), version);
+        }
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public RollingStockSchedule getProblem() {
+        return problem;
+    }
+    
+    public int getPortfolioSize() {
+        return portfolioSize;
+    }
+    
+    public Set<Long> getFrozenIds() {
+        return frozenIds;
+    }
+    
+    public RollingStockNetwork getNetwork() {
+        return network;
+    }
+    
+    public void setNetwork(RollingStockNetwork network) {
+        this.network = network;
+    }
+    
+    public RollingStockSchedule getBestSolution() {
+        return bestSolution;
+    }
+    
+    public Throwable getException() {
+        return exception;
+    }
+    
+    /**
+     * The best solution found so far, or the problem itself if the solver
+     * hasn't produced one yet
+     */
+    public RollingStockSchedule getSchedule() {
+        RollingStockSchedule schedule = bestSolution;
+        return schedule != null ? schedule : problem;
+    }
+    
+    /**
+     * Best solution consumer: stores the solution and sends the changed assignments
+     */
+    public synchronized void onBestSolution(RollingStockSchedule solution) {
+        List<Long> removed = new ArrayList<>();
+        Map<Long, Long> changed = updateAssignments(solution, removed);
+        version = versionSequence.getAsLong();
+        markChanged(changed, removed);
+        solution.setVersion(version);
+        bestSolution = solution;
+        BestSolutionEvent event = new BestSolutionEvent(version, solution.getScore(),
+                SolverStatus.SOLVING_ACTIVE, false, changed, removed);
+        for (MultiEmitter<? super BestSolutionEvent> emitter : emitters) {
+            emitter.emit(event);
+        }
+    }
+    
+    /**
+     * Best solution consumer of a portfolio member: only a solution that
+     * beats the best solution of all members so far becomes the job's best solution
+     */
+    public synchronized void onBestSolutionIfBetter(RollingStockSchedule solution) {
+        if (bestSolution == null || bestSolution.getScore() == null
+                || solution.getScore().compareTo(bestSolution.getScore()) > 0) {
+            onBestSolution(solution);
+        }
+    }
+    
+    /**
+     * Final best solution consumer: sends the final status and ends all streams
+     */
+    public synchronized void onSolvingEnded(RollingStockSchedule finalSolution) {
+        // Usually the same as the last best solution, but possibly a different instance
+        List<Long> removed = new ArrayList<>();
+        Map<Long, Long> changed = updateAssignments(finalSolution, removed);
+        if (bestSolution == null || !changed.isEmpty() || !removed.isEmpty()
+                || !Objects.equals(bestSolution.getScore(), finalSolution.getScore())) {
+            version = versionSequence.getAsLong();
+            markChanged(changed, removed);
+        }
+        finalSolution.setVersion(version);
+        bestSolution = finalSolution;
+        ended = true;
+        BestSolutionEvent event = new BestSolutionEvent(version, finalSolution.getScore(),
+                SolverStatus.NOT_SOLVING, false, changed, removed);
+        for (MultiEmitter<? super BestSolutionEvent> emitter : emitters) {
+            emitter.emit(event);
+            emitter.complete();
+        }
+        emitters.clear();
+    }
+    
+    public synchronized void onException(Throwable exception) {
+        this.exception = exception;
+        ended = true;
+        for (MultiEmitter<? super BestSolutionEvent> emitter : emitters) {
+            emitter.fail(exception);
+        }
+        emitters.clear();
+    }
+    
+    /**
+     * Remembers the assignments of the solution and forgets cancelled departures
+     * 
+     * @param removed receives the ids of the departures cancelled since the previous best solution
+     * @return the assignments that differ from the previous best solution (including added departures)
+     */
+    private Map<Long, Long> updateAssignments(RollingStockSchedule solution, List<Long> removed) {
+        Map<Long, Long> changed = new LinkedHashMap<>();
+        for (AtiesanasLaiks atiesanasLaiks : solution.getAtiesanasLaiki()) {
+            Long vilciensId = atiesanasLaiks.getVilciensId();
+            boolean known = assignments.containsKey(atiesanasLaiks.getId());
+            Long previousVilciensId = assignments.put(atiesanasLaiks.getId(), vilciensId);
+            if (!known || !Objects.equals(previousVilciensId, vilciensId)) {
+                changed.put(atiesanasLaiks.getId(), vilciensId);
+            }
+        }
+        if (assignments.size() > solution.getAtiesanasLaiki().size()) {
+            // Departures cancelled by a problem change
+            Set<Long> ids = new HashSet<>();
+            for (AtiesanasLaiks atiesanasLaiks : solution.getAtiesanasLaiki()) {
+                ids.add(atiesanasLaiks.getId());
+            }
+            for (Long atiesanasLaiksId : assignments.keySet()) {
+                if (!ids.contains(atiesanasLaiksId)) {
+                    removed.add(atiesanasLaiksId);
+                }
+            }
+            assignments.keySet().removeAll(removed);
+            changeVersions.keySet().removeAll(removed);
+        }
+        return changed;
+    }
+    
+    private void markChanged(Map<Long, Long> changed, List<Long> removed) {
+        for (Long atiesanasLaiksId : changed.keySet()) {
+            changeVersions.put(atiesanasLaiksId, version);
+            // Added again with the same id
+            removeVersions.remove(atiesanasLaiksId);
+        }
+        for (Long atiesanasLaiksId : removed) {
+            removeVersions.put(atiesanasLaiksId, version);
+        }
+    }
+    
+    /**
+     * The departures whose train changed and the ids of the departures removed after
+     * the given version, with the current score.
+     * If the version is not one of this job (e.g. from before a re-solve, or from
+     * another job after a restart), all departures are returned.
+     */
+    public synchronized RollingStockScheduleDelta getDelta(long since, SolverStatus solverStatus) {
+        RollingStockSchedule schedule = getSchedule();
+        boolean full = since < initialVersion || since > version;
+        List<AtiesanasLaiks> changed = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        if (full || since < version) {
+            for (AtiesanasLaiks atiesanasLaiks : schedule.getAtiesanasLaiki()) {
+                if (full || changeVersions.get(atiesanasLaiks.getId()) > since) {
+                    changed.add(atiesanasLaiks);
+                }
+            }
+        }
+        if (!full) {
+            removeVersions.forEach((atiesanasLaiksId, removeVersion) -> {
+                if (removeVersion > since) {
+                    removed.add(atiesanasLaiksId);
+                }
+            });
+        }
+        return new RollingStockScheduleDelta(version, since, full, schedule.getScore(),
+                ended ? SolverStatus.NOT_SOLVING : solverStatus, changed, removed);
+    }
+    
+    /**
+     * The current train of every departure with the score, referencing the network by id
+     */
+    public synchronized RollingStockAssignments getAssignments(SolverStatus solverStatus) {
+        return new RollingStockAssignments(network.getId(), version, getSchedule().getScore(),
+                ended ? SolverStatus.NOT_SOLVING : solverStatus, new HashMap<>(assignments));
+    }
+    
+    /**
+     * Stream of best solution events: a snapshot of all current assignments
+     * first, then only the changes of every new best solution.
+     * Ends when solving ends.
+     */
+    public Multi<BestSolutionEvent> bestSolutionEvents(SolverStatus solverStatus) {
+        return Multi.createFrom().emitter(emitter -> {
+            synchronized (this) {
+                RollingStockSchedule schedule = getSchedule();
+                emitter.emit(new BestSolutionEvent(version, schedule.getScore(),
+                        ended ? SolverStatus.NOT_SOLVING : solverStatus, true, new HashMap<>(assignments), List.of()));
+                if (ended) {
+                    emitter.complete();
+                    return;
+                }
+                emitters.add(emitter);
+            }
+            emitter.onTermination(() -> emitters.remove(emitter));
+        });
+    }
+}
@@ -0,0 +1,425 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.solver.RollingStockPortfolio;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.api.solver.SolverManager;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+import ai.timefold.solver.core.api.solver.change.ProblemChange;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * RollingStockJobService - Keeps track of all solve jobs
+ * 
+ * Every job is solved by the shared SolverManager under its own problem id,
+ * so several schedules (depots, planning days) can be optimized in parallel
+ * on one node (up to quarkus.timefold.solver-manager.parallel-solver-count
+ * at the same time, the rest are queued).
+ * 
+ * At most rolling-stock.jobs.max jobs are kept in memory. When that limit is
+ * reached, the oldest job that is no longer solving is evicted; if all of
+ * them are still solving, new jobs are rejected.
+ * 
+ * When rolling-stock.freeze-horizon is set and the request says what time of the
+ * schedule's day it is now, the job pins the departures that already have a train
+ * and leave before now + that horizon, so a re-solve (see solveFromBestSolution())
+ * only reshuffles the rest of the day. The schedule has no date, so now is never
+ * taken from the clock. Only the pins the service added are released again by the
+ * next re-solve; departures pinned by the client stay pinned.
+ * 
+ * A job can also be solved by a parallel portfolio: up to rolling-stock.portfolio.max
+ * independent solvers (see RollingStockPortfolio) each solve their own clone of the problem,
+ * and the best solution of any of them becomes the job's best solution. If one of them
+ * fails, the job fails and the others are stopped.
+ * 
+ * When rolling-stock.checkpoint.directory is set, the best solutions of every job are
+ * checkpointed (see RollingStockCheckpointStore) and the jobs that were still solving
+ * when the application stopped are resumed from their checkpoint on startup.
+ */
+@ApplicationScoped
+public class RollingStockJobService {
+    
+    private static final Logger LOGGER = Logger.getLogger(RollingStockJobService.class);
+    
+    @Inject
+    SolverManager<RollingStockSchedule, Long> solverManager;
+    
+    @Inject
+    SolverConfig solverConfig;
+    
+    @Inject
+    ObjectMapper objectMapper;
+    
+    @Inject
+    RollingStockCheckpointStore checkpointStore;
+    
+    @Inject
+    RollingStockStationNetworkStore stationNetworkStore;
+    
+    @ConfigProperty(name = "rolling-stock.jobs.max", defaultValue = "16")
+    int maxJobs;
+    
+    // Assigned departures before the requested now + this are pinned when solving starts (not set = no pinning)
+    @ConfigProperty(name = "rolling-stock.freeze-horizon")
+    Optional<Duration> freezeHorizon;
+    
+    @ConfigProperty(name = "rolling-stock.portfolio.max", defaultValue = "8")
+    int maxPortfolioSize;
+    
+    private final ConcurrentMap<Long, RollingStockJob> jobs = new ConcurrentHashMap<>();
+    
+    // Job ids after the singleton id used by the UI endpoints
+    private final AtomicLong lastJobId = new AtomicLong(RollingStockSchedulingResource.SINGLETON_ID);
+    
+    // Best solution versions, shared by all jobs so they never go back after a re-solve
+    private final AtomicLong lastVersion = new AtomicLong();
+    
+    // Solver managers of portfolio members 1 and higher (member 0 is solverManager), created when first needed
+    private final List<SolverManager<RollingStockSchedule, Long>> portfolioSolverManagers = new ArrayList<>();
+    
+    /**
+     * Starts solving the problem as a new job
+     * 
+     * @return the id of the new job
+     */
+    public Long submit(RollingStockSchedule problem, int portfolioSize, LocalTime now) {
+        Long jobId = lastJobId.incrementAndGet();
+        solve(jobId, problem, portfolioSize, now);
+        return jobId;
+    }
+    
+    /**
+     * Starts solving the problem under the given job id,
+     * replacing a finished job with the same id
+     */
+    public RollingStockJob solve(Long jobId, RollingStockSchedule problem) {
+        return solve(jobId, problem, 1, null);
+    }
+    
+    /**
+     * Starts solving the problem under the given job id with a portfolio of solvers,
+     * replacing a finished job with the same id
+     * 
+     * @param portfolioSize number of solvers solving the problem in parallel, 1 for a single solver
+     * @param now time of the schedule's day to apply the freeze horizon from, null for no freeze
+     */
+    public RollingStockJob solve(Long jobId, RollingStockSchedule problem, int portfolioSize, LocalTime now) {
+        return solve(jobId, problem, portfolioSize, now, Set.of());
+    }
+    
+    /**
+     * @param frozenIds departures of the problem that an earlier solve of this job froze
+     *                  (and that are still pinned), see RollingStockJob.getFrozenIds()
+     */
+    private synchronized RollingStockJob solve(Long jobId, RollingStockSchedule problem, int portfolioSize,
+                                               LocalTime now, Set<Long> frozenIds) {
+        if (portfolioSize < 1 || portfolioSize > maxPortfolioSize) {
+            throw new WebApplicationException("The parallelism (" + portfolioSize + ") must be between 1 and "
+                    + maxPortfolioSize + ".", Response.Status.BAD_REQUEST);
+        }
+        if (getSolverStatus(jobId) != SolverStatus.NOT_SOLVING) {
+            throw new WebApplicationException("Solving job (" + jobId + ") is still solving,"
+                    + " terminate it first.", Response.Status.CONFLICT);
+        }
+        if (!jobs.containsKey(jobId)) {
+            // Replacing a finished job with the same id does not need another slot
+            reserveSlot();
+        }
+        stationNetworkStore.share(problem);
+        problem.buildIndices();
+        if (now != null && freezeHorizon.isPresent()) {
+            Set<Long> pinnedIds = new HashSet<>(frozenIds);
+            pinnedIds.addAll(problem.pinDeparturesBefore(
+                    (int) Math.min(now.toSecondOfDay() / 60 + freezeHorizon.get().toMinutes(), 24 * 60)));
+            frozenIds = pinnedIds;
+        }
+        RollingStockJob job = new RollingStockJob(jobId, problem,
+                RollingStockNetwork.of(problem, objectMapper), lastVersion::incrementAndGet, portfolioSize, frozenIds);
+        jobs.put(jobId, job);
+        // Also before the first best solution, so the job is resumed if the application stops right away
+        checkpointStore.checkpoint(job, problem);
+        try {
+            if (portfolioSize > 1) {
+                solvePortfolio(job, problem);
+            } else {
+                solveSingle(job, problem);
+            }
+        } catch (RuntimeException e) {
+            // No job or checkpoint without a solver behind it
+            terminate(jobId);
+            jobs.remove(jobId, job);
+            checkpointStore.remove(jobId);
+            throw e;
+        }
+        return job;
+    }
+    
+    private void solveSingle(RollingStockJob job, RollingStockSchedule problem) {
+        Long jobId = job.getId();
+        solverManager.solveBuilder()
+                .withProblemId(jobId)
+                .withProblemFinder(id -> {
+                    // On the solver thread, the first job on a network computes its travel times
+                    problem.buildBraucienaLaikuMatrica();
+                    return problem;
+                })
+                .withBestSolutionEventConsumer(event -> {
+                    job.onBestSolution(event.solution());
+                    checkpointStore.checkpoint(job, job.getSchedule());
+                })
+                .withFinalBestSolutionEventConsumer(event -> {
+                    job.onSolvingEnded(event.solution());
+                    checkpointStore.remove(jobId);
+                })
+                .withExceptionHandler((id, exception) -> {
+                    job.onException(exception);
+                    checkpointStore.remove(jobId);
+                })
+                .run();
+    }
+    
+    private void solvePortfolio(RollingStockJob job, RollingStockSchedule problem) {
+        // Every member solves its own clone of the problem (the solver never changes the problem itself),
+        // so they all start from the same instance
+        AtomicInteger solvingMembers = new AtomicInteger(job.getPortfolioSize());
+        AtomicBoolean failed = new AtomicBoolean();
+        for (int member = 0; member < job.getPortfolioSize(); member++) {
+            int failingMember = member;
+            getPortfolioSolverManager(member).solveBuilder()
+                    .withProblemId(job.getId())
+                    .withProblemFinder(id -> {
+                        // Once for all members, the others wait for it
+                        problem.buildBraucienaLaikuMatrica();
+                        return problem;
+                    })
+                    .withBestSolutionEventConsumer(event -> {
+                        job.onBestSolutionIfBetter(event.solution());
+                        checkpointStore.checkpoint(job, job.getSchedule());
+                    })
+                    .withFinalBestSolutionEventConsumer(event -> {
+                        if (failed.get()) {
+                            return; // Stopped because another member failed
+                        }
+                        job.onBestSolutionIfBetter(event.solution());
+                        if (solvingMembers.decrementAndGet() == 0) {
+                            job.onSolvingEnded(job.getSchedule());
+                            checkpointStore.remove(job.getId());
+                        }
+                    })
+                    .withExceptionHandler((id, exception) -> {
+                        // Only the first failure ends the job, and then stops the members that are still solving
+                        if (failed.compareAndSet(false, true)) {
+                            job.onException(exception);
+                            checkpointStore.remove(job.getId());
+                            terminateOtherMembers(job, failingMember);
+                        }
+                    })
+                    .run();
+        }
+    }
+    
+    private void terminateOtherMembers(RollingStockJob job, int failingMember) {
+        // Not the failing member itself: terminateEarly() waits until its exception handler returns
+        for (int member = 0; member < job.getPortfolioSize(); member++) {
+            if (member != failingMember) {
+                getPortfolioSolverManager(member).terminateEarly(job.getId());
+            }
+        }
+    }
+    
+    private SolverManager<RollingStockSchedule, Long> getPortfolioSolverManager(int member) {
+        if (member == 0) {
+            return solverManager;
+        }
+        synchronized (portfolioSolverManagers) {
+            while (portfolioSolverManagers.size() < member) {
+                SolverConfig memberConfig = RollingStockPortfolio.memberConfig(solverConfig,
+                        portfolioSolverManagers.size() + 1);
+                portfolioSolverManagers.add(SolverManager.create(SolverFactory.create(memberConfig)));
+            }
+            return portfolioSolverManagers.get(member - 1);
+        }
+    }
+    
+    @PreDestroy
+    void closePortfolioSolverManagers() {
+        // solverManager itself is closed by the Timefold extension
+        synchronized (portfolioSolverManagers) {
+            for (SolverManager<RollingStockSchedule, Long> portfolioSolverManager : portfolioSolverManagers) {
+                portfolioSolverManager.close();
+            }
+            portfolioSolverManagers.clear();
+        }
+    }
+    
+    /**
+     * Resumes the jobs that were still solving when the application stopped,
+     * each from its last checkpoint (a warm start, like solveFromBestSolution()).
+     * The departures the job had frozen stay frozen, and are unfrozen by the next
+     * solveFromBestSolution() as before the restart.
+     */
+    void resumeFromCheckpoints(@Observes StartupEvent event) {
+        for (RollingStockCheckpointStore.Checkpoint checkpoint : checkpointStore.readAll()) {
+            lastJobId.accumulateAndGet(checkpoint.jobId(), Math::max);
+            // New versions must be above the checkpointed one, or clients would miss the deltas after it
+            Long version = checkpoint.schedule().getVersion();
+            if (version != null) {
+                lastVersion.accumulateAndGet(version, Math::max);
+            }
+            try {
+                solve(checkpoint.jobId(), checkpoint.schedule(),
+                        Math.min(checkpoint.portfolioSize(), maxPortfolioSize), null, checkpoint.frozenIds());
+                LOGGER.infof("Resumed solving job (%d) from its checkpoint.", checkpoint.jobId());
+            } catch (RuntimeException e) {
+                LOGGER.warnf(e, "Could not resume solving job (%d) from its checkpoint.", checkpoint.jobId());
+            }
+        }
+    }
+    
+    /**
+     * Stops solving the job and solves it again as a new job with the same id,
+     * starting from its best solution (warm start): the construction heuristic
+     * skips the departures that already have a train, so only the local search
+     * has to continue where the previous solve stopped.
+     * The departures the previous solve froze are unpinned first, so only
+     * the freeze horizon from the new now applies.
+     * 
+     * @param now time of the schedule's day to apply the freeze horizon from, null for no freeze
+     * @return the new job, or null if there is no job with that id
+     */
+    public synchronized RollingStockJob solveFromBestSolution(Long jobId, LocalTime now) {
+        RollingStockJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        // Waits until the final best solution has been consumed
+        terminate(jobId);
+        RollingStockSchedule schedule = job.getSchedule();
+        schedule.unpinDepartures(job.getFrozenIds());
+        return solve(jobId, schedule, job.getPortfolioSize(), now);
+    }
+    
+    /**
+     * Applies the change to the job while it keeps solving, so it re-optimizes
+     * from its current best solution instead of starting over
+     * 
+     * @return completes once a best solution containing the change has been consumed
+     *         and the job's network has been updated
+     */
+    public CompletableFuture<Void> addProblemChange(Long jobId, ProblemChange<RollingStockSchedule> problemChange) {
+        RollingStockJob job = jobs.get(jobId);
+        SolverStatus solverStatus = getSolverStatus(jobId);
+        if (job == null || solverStatus == SolverStatus.NOT_SOLVING) {
+            throw new WebApplicationException("Solving job (" + jobId + ") is not solving,"
+                    + " problem changes can only be applied while solving.", Response.Status.CONFLICT);
+        }
+        if (job.getPortfolioSize() > 1) {
+            throw new WebApplicationException("Solving job (" + jobId + ") is solved by a portfolio,"
+                    + " problem changes can only be applied to a single solver.", Response.Status.CONFLICT);
+        }
+        return solverManager.addProblemChange(jobId, problemChange)
+                .thenRun(() -> job.setNetwork(RollingStockNetwork.of(job.getSchedule(), objectMapper)));
+    }
+    
+    /**
+     * @return the job, or null if there is no job with that id (or it was evicted)
+     */
+    public RollingStockJob getJob(Long jobId) {
+        return jobs.get(jobId);
+    }
+    
+    /**
+     * @return the network with that id of any job, or null if there is none
+     */
+    public RollingStockNetwork getNetwork(String networkId) {
+        for (RollingStockJob job : jobs.values()) {
+            if (job.getNetwork().getId().equals(networkId)) {
+                return job.getNetwork();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * @return for a portfolio, the most active status of its members
+     */
+    public SolverStatus getSolverStatus(Long jobId) {
+        SolverStatus solverStatus = solverManager.getSolverStatus(jobId);
+        RollingStockJob job = jobs.get(jobId);
+        if (job != null) {
+            for (int member = 1; member < job.getPortfolioSize(); member++) {
+                SolverStatus memberStatus = getPortfolioSolverManager(member).getSolverStatus(jobId);
+                if (memberStatus == SolverStatus.SOLVING_ACTIVE
+                        || (memberStatus == SolverStatus.SOLVING_SCHEDULED && solverStatus == SolverStatus.NOT_SOLVING)) {
+                    solverStatus = memberStatus;
+                }
+            }
+        }
+        return solverStatus;
+    }
+    
+    /**
+     * Stops solving the job (all members of a portfolio); its best solution stays available
+     */
+    public void terminate(Long jobId) {
+        solverManager.terminateEarly(jobId);
+        RollingStockJob job = jobs.get(jobId);
+        if (job != null) {
+            for (int member = 1; member < job.getPortfolioSize(); member++) {
+                getPortfolioSolverManager(member).terminateEarly(jobId);
+            }
+        }
+    }
+    
+    /**
+     * Stops solving the job and forgets it
+     * 
+     * @return the removed job, or null if there was none
+     */
+    public RollingStockJob remove(Long jobId) {
+        terminate(jobId);
+        return jobs.remove(jobId);
+    }
+    
+    private void reserveSlot() {
+        if (jobs.size() < maxJobs) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> getSolverStatus(job.getId()) == SolverStatus.NOT_SOLVING)
+                .min(Comparator.comparing(RollingStockJob::getId))
+                .ifPresent(job -> jobs.remove(job.getId()));
+        if (jobs.size() >= maxJobs) {
+            throw new WebApplicationException("All " + maxJobs + " solve jobs are still solving,"
+                    + " terminate one first.", Response.Status.TOO_MANY_REQUESTS);
+        }
+    }
+}
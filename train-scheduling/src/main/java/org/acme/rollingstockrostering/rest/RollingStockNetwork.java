@@ -0,0 +1,74 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * RollingStockNetwork - The reference data of a schedule that doesn't change during solving
+ * 
+ * Stations, routes, depots, trains, passenger demand, configuration and the
+ * departures without their train, serialized to JSON once when a job starts
+ * (and again after every problem change).
+ * The id is the SHA-256 of that JSON, so it doubles as a strong ETag:
+ * the same network always has the same id and a different one never does.
+ */
+public class RollingStockNetwork {
+    
+    private final String id;
+    private final byte[] json;
+    
+    private RollingStockNetwork(String id, byte[] json) {
+        this.id = id;
+        this.json = json;
+    }
+    
+    /**
+     * Must be called with the problem before it is solved or with a best solution,
+     * never with the working solution the solver is changing
+     */
+    public static RollingStockNetwork of(RollingStockSchedule problem, ObjectMapper objectMapper) {
+        Map<String, Object> network = new LinkedHashMap<>();
+        network.put("stacijas", problem.getStacijas());
+        network.put("marsruti", problem.getMarsruti());
+        network.put("depo", problem.getDepo());
+        network.put("vilcieni", problem.getVilcieni());
+        network.put("cilvekuPieprasijumi", problem.getCilvekuPieprasijumi());
+        network.put("konfiguracija", problem.getKonfiguracija());
+        network.put("atiesanasLaiki", problem.getAtiesanasLaiki());
+        try {
+            byte[] json = objectMapper.copy()
+                    .addMixIn(AtiesanasLaiks.class, AtiesanasLaiksWithoutVilciens.class)
+                    .writeValueAsBytes(network);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return new RollingStockNetwork(HexFormat.of().formatHex(hash), json);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not serialize the network of the schedule.", e);
+        }
+    }
+    
+    // The assignments are served separately, see RollingStockAssignments
+    @JsonIgnoreProperties({ "vilciens", "vilciensId" })
+    private abstract static class AtiesanasLaiksWithoutVilciens {
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    /**
+     * @return the serialized network (do not modify)
+     */
+    public byte[] getJson() {
+        return json;
+    }
+}
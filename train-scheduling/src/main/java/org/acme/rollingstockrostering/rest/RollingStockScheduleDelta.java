@@ -0,0 +1,65 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.SolverStatus;
+
+/**
+ * RollingStockScheduleDelta - Response of GET /rolling-stock-schedule?since=<version>
+ * 
+ * Only carries the departures whose train changed after the requested version
+ * and the ids of the departures cancelled since then, with the current score. Poll again with since=version to get the next changes.
+ */
+public class RollingStockScheduleDelta {
+    
+    private final long version; // Current best solution version
+    private final long since; // Requested version
+    private final boolean full; // True if since was too old, so atiesanasLaiki contains all departures
+    private final HardSoftScore score;
+    private final SolverStatus solverStatus;
+    private final List<AtiesanasLaiks> atiesanasLaiki; // Departures whose vilciens changed
+    private final List<Long> removed; // Ids of the departures cancelled, empty if full
+    
+    public RollingStockScheduleDelta(long version, long since, boolean full, HardSoftScore score,
+                                     SolverStatus solverStatus, List<AtiesanasLaiks> atiesanasLaiki,
+                                     List<Long> removed) {
+        this.version = version;
+        this.since = since;
+        this.full = full;
+        this.score = score;
+        this.solverStatus = solverStatus;
+        this.atiesanasLaiki = atiesanasLaiki;
+        this.removed = removed;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public long getSince() {
+        return since;
+    }
+    
+    public boolean isFull() {
+        return full;
+    }
+    
+    public HardSoftScore getScore() {
+        return score;
+    }
+    
+    public SolverStatus getSolverStatus() {
+        return solverStatus;
+    }
+    
+    public List<AtiesanasLaiks> getAtiesanasLaiki() {
+        return atiesanasLaiki;
+    }
+    
+    public List<Long> getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,182 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.rollingstockrostering.domain.*;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * RollingStockScheduleReader - Streaming import of large RollingStockSchedule documents
+ * 
+ * Reads the same JSON as the RollingStockSchedule (POST /rolling-stock-schedule/jobs),
+ * but token by token with a JsonParser: no tree of the document is built, and every
+ * element is turned into its domain object as soon as it has been read.
+ * The departures, by far the largest array, are parsed field by field without data binding.
+ * 
+ * Every station, route and train id is interned, so the thousands of departures,
+ * depots and demands that refer to the same station share one Long instead of
+ * each holding their own copy. Assigned trains of departures are resolved to one
+ * Vilciens per id as well.
+ * 
+ * Unknown fields (e.g. score, solverStatus, version) are skipped. Missing
+ * lists are read as empty. One reader reads one document.
+ */
+public final class RollingStockScheduleReader {
+    
+    private final ObjectMapper objectMapper;
+    
+    private final Map<Long, Long> internedIds = new HashMap<>();
+    private final Map<Long, Vilciens> vilciensById = new HashMap<>();
+    
+    public RollingStockScheduleReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Reads the schedule and builds its indices, the stream is closed afterwards
+     * 
+     * @throws JsonParseException if the document is not a RollingStockSchedule object
+     */
+    public RollingStockSchedule read(InputStream inputStream) throws IOException {
+        RollingStockSchedule schedule = new RollingStockSchedule(new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), null, new ArrayList<>());
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "A schedule must be a JSON object.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "vilcieni" -> readArray(parser, schedule.getVilcieni(), this::readVilciens);
+                    case "stacijas" -> readArray(parser, schedule.getStacijas(), this::readStacija);
+                    case "marsruti" -> readArray(parser, schedule.getMarsruti(), this::readMarsruts);
+                    case "depo" -> readArray(parser, schedule.getDepo(), this::readDepo);
+                    case "cilvekuPieprasijumi" ->
+                            readArray(parser, schedule.getCilvekuPieprasijumi(), this::readCilvekuPieprasijums);
+                    case "konfiguracija" ->
+                            schedule.setKonfiguracija(objectMapper.readValue(parser, Konfiguracija.class));
+                    case "atiesanasLaiki" ->
+                            readArray(parser, schedule.getAtiesanasLaiki(), this::readAtiesanasLaiks);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        schedule.buildIndices();
+        return schedule;
+    }
+    
+    @FunctionalInterface
+    private interface ElementReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+    
+    private static <T> void readArray(JsonParser parser, List<T> list, ElementReader<T> elementReader)
+            throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "The field (" + parser.currentName() + ") must be an array.");
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(elementReader.read(parser));
+        }
+    }
+    
+    private Vilciens readVilciens(JsonParser parser) throws IOException {
+        Vilciens vilciens = objectMapper.readValue(parser, Vilciens.class);
+        vilciens.setId(intern(vilciens.getId()));
+        vilciensById.putIfAbsent(vilciens.getId(), vilciens);
+        return vilciens;
+    }
+    
+    private Stacija readStacija(JsonParser parser) throws IOException {
+        Stacija stacija = objectMapper.readValue(parser, Stacija.class);
+        stacija.setId(intern(stacija.getId()));
+        internAll(stacija.getKaiminiStacijas());
+        return stacija;
+    }
+    
+    private Marsruts readMarsruts(JsonParser parser) throws IOException {
+        Marsruts marsruts = objectMapper.readValue(parser, Marsruts.class);
+        marsruts.setId(intern(marsruts.getId()));
+        internAll(marsruts.getStacijas());
+        return marsruts;
+    }
+    
+    private Depo readDepo(JsonParser parser) throws IOException {
+        Depo depo = objectMapper.readValue(parser, Depo.class);
+        depo.setVilciensId(intern(depo.getVilciensId()));
+        depo.setStacijaId(intern(depo.getStacijaId()));
+        return depo;
+    }
+    
+    private CilvekuPieprasijums readCilvekuPieprasijums(JsonParser parser) throws IOException {
+        CilvekuPieprasijums pieprasijums = objectMapper.readValue(parser, CilvekuPieprasijums.class);
+        pieprasijums.setStacijasId(intern(pieprasijums.getStacijasId()));
+        pieprasijums.setMarsrutaId(intern(pieprasijums.getMarsrutaId()));
+        return pieprasijums;
+    }
+    
+    private AtiesanasLaiks readAtiesanasLaiks(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "A departure must be a JSON object.");
+        }
+        AtiesanasLaiks atiesanasLaiks = new AtiesanasLaiks();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "id" -> atiesanasLaiks.setId(parser.getLongValue());
+                case "stacijasId" -> atiesanasLaiks.setStacijasId(intern(parser.getLongValue()));
+                case "marsrutaId" -> atiesanasLaiks.setMarsrutaId(intern(parser.getLongValue()));
+                case "laiks" -> atiesanasLaiks.setLaiks(objectMapper.readValue(parser, LocalTime.class));
+                case "cilvekuDelta" -> atiesanasLaiks.setCilvekuDelta(parser.getIntValue());
+                case "pinned" -> atiesanasLaiks.setPinned(parser.getBooleanValue());
+                case "vilciens" -> atiesanasLaiks.setVilciens(readAssignedVilciens(parser));
+                default -> parser.skipChildren(); // e.g. vilciensId, derived from vilciens
+            }
+        }
+        return atiesanasLaiks;
+    }
+    
+    /**
+     * The same Vilciens for every departure assigned to that train id
+     * (buildIndices() replaces it by the one in vilcieni, if that has the id)
+     */
+    private Vilciens readAssignedVilciens(JsonParser parser) throws IOException {
+        Vilciens vilciens = objectMapper.readValue(parser, Vilciens.class);
+        if (vilciens.getId() == null) {
+            return null;
+        }
+        return vilciensById.computeIfAbsent(intern(vilciens.getId()), id -> vilciens);
+    }
+    
+    private Long intern(Long id) {
+        if (id == null) {
+            return null;
+        }
+        Long interned = internedIds.putIfAbsent(id, id);
+        return interned != null ? interned : id;
+    }
+    
+    private void internAll(List<Long> ids) {
+        if (ids != null) {
+            ids.replaceAll(this::intern);
+        }
+    }
+}
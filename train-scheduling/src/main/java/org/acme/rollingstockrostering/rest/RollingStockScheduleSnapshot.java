@@ -0,0 +1,577 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.rollingstockrostering.domain.*;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+
+/**
+ * RollingStockScheduleSnapshot - Compact binary format of a whole RollingStockSchedule
+ * 
+ * For checkpoints and for shipping schedules between services: much smaller and
+ * faster to read and write than JSON. It is also a REST content type (MEDIA_TYPE,
+ * see RollingStockScheduleSnapshotProvider).
+ * 
+ * The format is columnar: after the header (MAGIC, FORMAT_VERSION, version, score,
+ * konfiguracija) every list of the schedule is written as its size followed by one
+ * primitive array per field, e.g. all departure ids, then all their station ids, ...
+ * Times are seconds of day, durations nanoseconds, and the assignment of a departure
+ * is the index of its train in vilcieni (-1 if unassigned). Strings are UTF-8 after
+ * their length, a missing time or list is -1 and a missing id Long.MIN_VALUE.
+ * All numbers are big-endian. The solver status is not part of the snapshot.
+ * 
+ * Reading builds the indices (RollingStockSchedule.buildIndices()), like the JSON import.
+ * A snapshot can come from an untrusted request body, so reading never trusts its
+ * sizes: a list size or string length that does not fit in the rest of the snapshot
+ * (the rest of the file, or at most maxBytes of a stream) is a StreamCorruptedException,
+ * and lists and strings only grow as their bytes actually arrive.
+ */
+public final class RollingStockScheduleSnapshot {
+    
+    public static final String MEDIA_TYPE = "application/x-rolling-stock-snapshot";
+    
+    private static final int MAGIC = 0x52535353; // "RSSS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_INITIAL_CAPACITY = 64 * 1024; // Of the lists, they grow beyond as they are read
+    private static final long NULL_ID = Long.MIN_VALUE;
+    
+    private RollingStockScheduleSnapshot() {
+    }
+    
+    public static void write(RollingStockSchedule schedule, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(schedule, channel);
+        }
+    }
+    
+    public static RollingStockSchedule read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+    
+    /**
+     * Writes the schedule, the channel is not closed
+     */
+    public static void write(RollingStockSchedule schedule, WritableByteChannel channel) throws IOException {
+        Output out = new Output(channel);
+        out.putInt(MAGIC);
+        out.putInt(FORMAT_VERSION);
+        out.putLong(schedule.getVersion() == null ? NULL_ID : schedule.getVersion());
+        out.putString(schedule.getScore() == null ? null : schedule.getScore().toString());
+        Konfiguracija konfiguracija = schedule.getKonfiguracija();
+        out.putBoolean(konfiguracija != null);
+        if (konfiguracija != null) {
+            out.putLong(toNanos(konfiguracija.getAttalumsStarpVilcieniem()));
+            out.putLong(toNanos(konfiguracija.getStavesanasLaiks()));
+        }
+        
+        List<Stacija> stacijas = orEmpty(schedule.getStacijas());
+        out.putInt(stacijas.size());
+        for (Stacija stacija : stacijas) {
+            out.putId(stacija.getId());
+        }
+        for (Stacija stacija : stacijas) {
+            out.putString(stacija.getNosaukums());
+        }
+        for (Stacija stacija : stacijas) {
+            out.putDouble(stacija.getKoordinatas() == null ? Double.NaN : stacija.getKoordinatas().getLatitude());
+        }
+        for (Stacija stacija : stacijas) {
+            out.putDouble(stacija.getKoordinatas() == null ? Double.NaN : stacija.getKoordinatas().getLongitude());
+        }
+        for (Stacija stacija : stacijas) {
+            out.putIds(stacija.getKaiminiStacijas());
+        }
+        
+        List<Marsruts> marsruti = orEmpty(schedule.getMarsruti());
+        out.putInt(marsruti.size());
+        for (Marsruts marsruts : marsruti) {
+            out.putId(marsruts.getId());
+        }
+        for (Marsruts marsruts : marsruti) {
+            out.putString(marsruts.getNosaukums());
+        }
+        for (Marsruts marsruts : marsruti) {
+            out.putIds(marsruts.getStacijas());
+        }
+        
+        List<Vilciens> vilcieni = orEmpty(schedule.getVilcieni());
+        Map<Long, Integer> vilciensIdxById = new HashMap<>();
+        out.putInt(vilcieni.size());
+        for (int i = 0; i < vilcieni.size(); i++) {
+            out.putId(vilcieni.get(i).getId());
+            vilciensIdxById.putIfAbsent(vilcieni.get(i).getId(), i);
+        }
+        for (Vilciens vilciens : vilcieni) {
+            out.putInt(vilciens.getKapacitate());
+        }
+        
+        List<Depo> depo = orEmpty(schedule.getDepo());
+        out.putInt(depo.size());
+        for (Depo d : depo) {
+            out.putId(d.getId());
+        }
+        for (Depo d : depo) {
+            out.putId(d.getVilciensId());
+        }
+        for (Depo d : depo) {
+            out.putId(d.getStacijaId());
+        }
+        
+        List<CilvekuPieprasijums> cilvekuPieprasijumi = orEmpty(schedule.getCilvekuPieprasijumi());
+        out.putInt(cilvekuPieprasijumi.size());
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            out.putId(pieprasijums.getId());
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            out.putId(pieprasijums.getStacijasId());
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            out.putId(pieprasijums.getMarsrutaId());
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            out.putInt(toSecondOfDay(pieprasijums.getStunda()));
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            out.putInt(pieprasijums.getCilvekuSkaits());
+        }
+        
+        List<AtiesanasLaiks> atiesanasLaiki = orEmpty(schedule.getAtiesanasLaiki());
+        out.putInt(atiesanasLaiki.size());
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            out.putId(atiesanasLaiks.getId());
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            out.putId(atiesanasLaiks.getStacijasId());
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            out.putId(atiesanasLaiks.getMarsrutaId());
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            out.putInt(toSecondOfDay(atiesanasLaiks.getLaiks()));
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            out.putInt(atiesanasLaiks.getCilvekuDelta());
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            Long vilciensId = atiesanasLaiks.getVilciensId();
+            out.putInt(vilciensId == null ? -1 : vilciensIdxById.getOrDefault(vilciensId, -1));
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            out.putBoolean(atiesanasLaiks.isPinned());
+        }
+        out.flush();
+    }
+    
+    /**
+     * Reads a schedule written by write(), the channel is not closed.
+     * A file (SeekableByteChannel) is read up to its end, any other channel without a size limit.
+     * 
+     * @throws StreamCorruptedException if it is not a snapshot (of this format version)
+     * @throws EOFException if the snapshot is truncated
+     */
+    public static RollingStockSchedule read(ReadableByteChannel channel) throws IOException {
+        return read(channel, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Reads a schedule written by write(), the channel is not closed
+     * 
+     * @param maxBytes the most the snapshot can be long, e.g. the Content-Length of a request
+     *                 (for a SeekableByteChannel, the rest of the channel if that is less)
+     * @throws StreamCorruptedException if it is not a snapshot (of this format version),
+     *                                  or it claims more data than maxBytes
+     * @throws EOFException if the snapshot is truncated
+     */
+    public static RollingStockSchedule read(ReadableByteChannel channel, long maxBytes) throws IOException {
+        if (channel instanceof SeekableByteChannel seekableChannel) {
+            maxBytes = Math.min(maxBytes, seekableChannel.size() - seekableChannel.position());
+        }
+        Input in = new Input(channel, maxBytes);
+        if (in.getInt() != MAGIC) {
+            throw new StreamCorruptedException("This is not a rolling stock schedule snapshot.");
+        }
+        int formatVersion = in.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new StreamCorruptedException("The snapshot format version (" + formatVersion
+                    + ") is not supported, only version (" + FORMAT_VERSION + ").");
+        }
+        RollingStockSchedule schedule = new RollingStockSchedule();
+        long version = in.getLong();
+        schedule.setVersion(version == NULL_ID ? null : version);
+        String score = in.getString();
+        schedule.setScore(score == null ? null : HardSoftScore.parseScore(score));
+        if (in.getBoolean()) {
+            schedule.setKonfiguracija(new Konfiguracija(fromNanos(in.getLong()), fromNanos(in.getLong())));
+        }
+        
+        int stacijuSkaits = in.getCount(8 + 4 + 8 + 8 + 4); // Id, name, latitude, longitude, neighbours
+        List<Stacija> stacijas = newList(stacijuSkaits);
+        for (int i = 0; i < stacijuSkaits; i++) {
+            Stacija stacija = new Stacija();
+            stacija.setId(in.getId());
+            stacijas.add(stacija);
+        }
+        for (Stacija stacija : stacijas) {
+            stacija.setNosaukums(in.getString());
+        }
+        // All station ids have been read, so this is no larger than the data it came with
+        double[] latitudes = new double[stacijuSkaits];
+        for (int i = 0; i < stacijuSkaits; i++) {
+            latitudes[i] = in.getDouble();
+        }
+        for (int i = 0; i < stacijuSkaits; i++) {
+            double longitude = in.getDouble();
+            if (!Double.isNaN(latitudes[i])) {
+                stacijas.get(i).setKoordinatas(new GeoCoordinates(latitudes[i], longitude));
+            }
+        }
+        for (Stacija stacija : stacijas) {
+            stacija.setKaiminiStacijas(in.getIds());
+        }
+        schedule.setStacijas(stacijas);
+        
+        int marsrutuSkaits = in.getCount(8 + 4 + 4); // Id, name, stations
+        List<Marsruts> marsruti = newList(marsrutuSkaits);
+        for (int i = 0; i < marsrutuSkaits; i++) {
+            Marsruts marsruts = new Marsruts();
+            marsruts.setId(in.getId());
+            marsruti.add(marsruts);
+        }
+        for (Marsruts marsruts : marsruti) {
+            marsruts.setNosaukums(in.getString());
+        }
+        for (Marsruts marsruts : marsruti) {
+            marsruts.setStacijas(in.getIds());
+        }
+        schedule.setMarsruti(marsruti);
+        
+        int vilcienuSkaits = in.getCount(8 + 4); // Id, capacity
+        List<Vilciens> vilcieni = newList(vilcienuSkaits);
+        for (int i = 0; i < vilcienuSkaits; i++) {
+            Vilciens vilciens = new Vilciens();
+            vilciens.setId(in.getId());
+            vilcieni.add(vilciens);
+        }
+        for (Vilciens vilciens : vilcieni) {
+            vilciens.setKapacitate(in.getInt());
+        }
+        schedule.setVilcieni(vilcieni);
+        
+        int depoSkaits = in.getCount(8 + 8 + 8); // Id, train id, station id
+        List<Depo> depo = newList(depoSkaits);
+        for (int i = 0; i < depoSkaits; i++) {
+            Depo d = new Depo();
+            d.setId(in.getId());
+            depo.add(d);
+        }
+        for (Depo d : depo) {
+            d.setVilciensId(in.getId());
+        }
+        for (Depo d : depo) {
+            d.setStacijaId(in.getId());
+        }
+        schedule.setDepo(depo);
+        
+        int pieprasijumuSkaits = in.getCount(8 + 8 + 8 + 4 + 4); // Id, station id, route id, hour, passengers
+        List<CilvekuPieprasijums> cilvekuPieprasijumi = newList(pieprasijumuSkaits);
+        for (int i = 0; i < pieprasijumuSkaits; i++) {
+            CilvekuPieprasijums pieprasijums = new CilvekuPieprasijums();
+            pieprasijums.setId(in.getId());
+            cilvekuPieprasijumi.add(pieprasijums);
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            pieprasijums.setStacijasId(in.getId());
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            pieprasijums.setMarsrutaId(in.getId());
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            pieprasijums.setStunda(fromSecondOfDay(in.getInt()));
+        }
+        for (CilvekuPieprasijums pieprasijums : cilvekuPieprasijumi) {
+            pieprasijums.setCilvekuSkaits(in.getInt());
+        }
+        schedule.setCilvekuPieprasijumi(cilvekuPieprasijumi);
+        
+        // Id, station id, route id, time, passengers, train index, pinned
+        int atiesanuSkaits = in.getCount(8 + 8 + 8 + 4 + 4 + 4 + 1);
+        List<AtiesanasLaiks> atiesanasLaiki = newList(atiesanuSkaits);
+        for (int i = 0; i < atiesanuSkaits; i++) {
+            AtiesanasLaiks atiesanasLaiks = new AtiesanasLaiks();
+            atiesanasLaiks.setId(in.getId());
+            atiesanasLaiki.add(atiesanasLaiks);
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setStacijasId(in.getId());
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setMarsrutaId(in.getId());
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setLaiks(fromSecondOfDay(in.getInt()));
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setCilvekuDelta(in.getInt());
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            int vilciensIdx = in.getInt();
+            if (vilciensIdx < -1 || vilciensIdx >= vilcienuSkaits) {
+                throw new StreamCorruptedException("The departure (" + atiesanasLaiks.getId()
+                        + ") has an invalid train index (" + vilciensIdx + ").");
+            }
+            atiesanasLaiks.setVilciens(vilciensIdx == -1 ? null : vilcieni.get(vilciensIdx));
+        }
+        for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+            atiesanasLaiks.setPinned(in.getBoolean());
+        }
+        schedule.setAtiesanasLaiki(atiesanasLaiki);
+        
+        schedule.buildIndices();
+        return schedule;
+    }
+    
+    private static <T> List<T> newList(int size) {
+        return new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+    }
+    
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+    
+    private static long toNanos(Duration duration) {
+        return duration == null ? NULL_ID : duration.toNanos();
+    }
+    
+    private static Duration fromNanos(long nanos) {
+        return nanos == NULL_ID ? null : Duration.ofNanos(nanos);
+    }
+    
+    private static int toSecondOfDay(LocalTime laiks) {
+        return laiks == null ? -1 : laiks.toSecondOfDay();
+    }
+    
+    private static LocalTime fromSecondOfDay(int secondOfDay) throws StreamCorruptedException {
+        if (secondOfDay == -1) {
+            return null;
+        }
+        if (secondOfDay < 0 || secondOfDay >= 24 * 60 * 60) {
+            throw new StreamCorruptedException("The time (" + secondOfDay + ") is not a second of day.");
+        }
+        return LocalTime.ofSecondOfDay(secondOfDay);
+    }
+    
+    /**
+     * Buffered writes to the channel
+     */
+    private static final class Output {
+        
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        
+        private Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+        
+        void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+        
+        void putDouble(double value) throws IOException {
+            ensureRemaining(Double.BYTES);
+            buffer.putDouble(value);
+        }
+        
+        void putBoolean(boolean value) throws IOException {
+            ensureRemaining(1);
+            buffer.put((byte) (value ? 1 : 0));
+        }
+        
+        void putId(Long id) throws IOException {
+            putLong(id == null ? NULL_ID : id);
+        }
+        
+        void putIds(List<Long> ids) throws IOException {
+            if (ids == null) {
+                putInt(-1);
+                return;
+            }
+            putInt(ids.size());
+            for (Long id : ids) {
+                putId(id);
+            }
+        }
+        
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+        
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Buffered reads from the channel
+     */
+    private static final class Input {
+        
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private final long maxBytes;
+        private long bytesRead = 0L; // From the channel, including those still in the buffer
+        
+        private Input(ReadableByteChannel channel, long maxBytes) {
+            this.channel = channel;
+            this.maxBytes = maxBytes;
+        }
+        
+        int getInt() throws IOException {
+            ensureRemaining(Integer.BYTES);
+            return buffer.getInt();
+        }
+        
+        long getLong() throws IOException {
+            ensureRemaining(Long.BYTES);
+            return buffer.getLong();
+        }
+        
+        double getDouble() throws IOException {
+            ensureRemaining(Double.BYTES);
+            return buffer.getDouble();
+        }
+        
+        boolean getBoolean() throws IOException {
+            ensureRemaining(1);
+            return buffer.get() != 0;
+        }
+        
+        /**
+         * A list size, never negative, of elements that take at least elementBytes each
+         */
+        int getCount(int elementBytes) throws IOException {
+            int count = getInt();
+            if (count < 0) {
+                throw new StreamCorruptedException("The list size (" + count + ") is negative.");
+            }
+            checkFits((long) count * elementBytes, "list size (" + count + ")");
+            return count;
+        }
+        
+        Long getId() throws IOException {
+            long id = getLong();
+            return id == NULL_ID ? null : id;
+        }
+        
+        List<Long> getIds() throws IOException {
+            int size = getInt();
+            if (size == -1) {
+                return null;
+            }
+            if (size < 0) {
+                throw new StreamCorruptedException("The list size (" + size + ") is negative.");
+            }
+            checkFits((long) size * Long.BYTES, "list size (" + size + ")");
+            List<Long> ids = newList(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(getId());
+            }
+            return ids;
+        }
+        
+        String getString() throws IOException {
+            int length = getInt();
+            if (length == -1) {
+                return null;
+            }
+            if (length < 0) {
+                throw new StreamCorruptedException("The string length (" + length + ") is negative.");
+            }
+            checkFits(length, "string length (" + length + ")");
+            byte[] bytes = new byte[Math.min(length, BUFFER_SIZE)];
+            int offset = 0;
+            while (offset < length) {
+                ensureRemaining(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                if (offset + chunk > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(length, Math.max(offset + chunk, 2L * bytes.length)));
+                }
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        
+        private void checkFits(long bytes, String what) throws StreamCorruptedException {
+            long remainingBytes = maxBytes - (bytesRead - buffer.remaining());
+            if (bytes > remainingBytes) {
+                throw new StreamCorruptedException("The " + what + " does not fit in the rest of the snapshot ("
+                        + remainingBytes + " bytes).");
+            }
+        }
+        
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("The snapshot ends unexpectedly.");
+                }
+                bytesRead += read;
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * RollingStockScheduleSnapshotProvider - RollingStockScheduleSnapshot as a REST content type
+ * 
+ * Reads and writes a RollingStockSchedule body as application/x-rolling-stock-snapshot,
+ * for the endpoints that accept or return it next to JSON.
+ * A body is read as at most its Content-Length (or rolling-stock.max-body-size
+ * without one, see RequestBodyLimitFilter) long, so its list sizes and string lengths
+ * are checked against that.
+ */
+@Provider
+@Consumes(RollingStockScheduleSnapshot.MEDIA_TYPE)
+@Produces(RollingStockScheduleSnapshot.MEDIA_TYPE)
+public class RollingStockScheduleSnapshotProvider
+        implements MessageBodyReader<RollingStockSchedule>, MessageBodyWriter<RollingStockSchedule> {
+    
+    private static final MediaType SNAPSHOT_MEDIA_TYPE = MediaType.valueOf(RollingStockScheduleSnapshot.MEDIA_TYPE);
+    
+    @ConfigProperty(name = "rolling-stock.max-body-size", defaultValue = "10240K")
+    MemorySize maxBodySize;
+    
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == RollingStockSchedule.class && SNAPSHOT_MEDIA_TYPE.isCompatible(mediaType);
+    }
+    
+    @Override
+    public RollingStockSchedule readFrom(Class<RollingStockSchedule> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+            throws IOException {
+        long maxBytes = maxBodySize.asLongValue();
+        String contentLength = httpHeaders.getFirst(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                maxBytes = Math.min(maxBytes, Long.parseLong(contentLength));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("The Content-Length (" + contentLength + ") is not a number.", e);
+            }
+        }
+        try {
+            return RollingStockScheduleSnapshot.read(Channels.newChannel(entityStream), maxBytes);
+        } catch (StreamCorruptedException | EOFException e) {
+            throw new BadRequestException("The snapshot could not be read: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return RollingStockSchedule.class.isAssignableFrom(type) && SNAPSHOT_MEDIA_TYPE.isCompatible(mediaType);
+    }
+    
+    @Override
+    public void writeTo(RollingStockSchedule schedule, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        RollingStockScheduleSnapshot.write(schedule, Channels.newChannel(entityStream));
+    }
+}
@@ -1,9 +1,12 @@
 package org.acme.rollingstockrostering.rest;
 
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 
 import org.acme.rollingstockrostering.domain.RollingStockSchedule;
@@ -27,4 +30,25 @@ public class RollingStockSchedulingDemoResource {
     public RollingStockSchedule getDemoSchedule() {
         return demoDataGenerator.generateDemoData();
     }
+    
+    /**
+     * GET /demo/rolling-stock-schedule/synthetic
+     * Returns a synthetic schedule of the requested size, for scaling tests
+     * (see SyntheticDataGenerator; the same parameters always give the same schedule).
+     * Sizes outside SyntheticDataGenerator's minimums and maximums are a 400.
+     */
+    @GET
+    @Path("/rolling-stock-schedule/synthetic")
+    public RollingStockSchedule getSyntheticSchedule(
+            @QueryParam("stations") @DefaultValue("150") int stations,
+            @QueryParam("routes") @DefaultValue("10") int routes,
+            @QueryParam("trains") @DefaultValue("30") int trains,
+            @QueryParam("runsPerHour") @DefaultValue("4") int runsPerHour,
+            @QueryParam("seed") @DefaultValue("37") long seed) {
+        try {
+            return SyntheticDataGenerator.generate(stations, routes, trains, runsPerHour, seed);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
 }
@@ -1,24 +1,86 @@
 package org.acme.rollingstockrostering.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalTime;
+import java.util.concurrent.CompletionStage;
+
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.InternalServerErrorException;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.CilvekuPieprasijums;
 import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.solver.AddAtiesanasLaiksProblemChange;
+import org.acme.rollingstockrostering.solver.CancelAtiesanasLaiksProblemChange;
+import org.acme.rollingstockrostering.solver.RemoveVilciensProblemChange;
+import org.acme.rollingstockrostering.solver.UpdateCilvekuPieprasijumsProblemChange;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
-import ai.timefold.solver.core.api.solver.SolverManager;
 import ai.timefold.solver.core.api.solver.SolverStatus;
+import ai.timefold.solver.core.api.solver.change.ProblemChange;
+import io.smallrye.mutiny.Multi;
 
 /**
  * RollingStockSchedulingResource - REST API for the Rolling Stock Rostering problem
  * 
  * Endpoints:
  * - GET /rolling-stock-schedule - Get demo schedule
+ * - GET /rolling-stock-schedule?since={version} - Get only the departures reassigned after that version
+ * - GET /rolling-stock-schedule/assignments - Get only the train of every departure and the score
  * - POST /rolling-stock-schedule/solve - Start solving
+ * - POST /rolling-stock-schedule/solve?warmStart=true - Continue solving from the previous best solution
+ * - POST /rolling-stock-schedule/solve?parallelism=4 - Solve with a portfolio of 4 solvers (also for /jobs)
+ * - POST /rolling-stock-schedule/solve?now=14:30 - Freeze the departures before 14:30 + the
+ *   rolling-stock.freeze-horizon (also for /jobs, /jobs/import and /jobs/{jobId}/solve)
  * - GET /rolling-stock-schedule/stop-solving - Stop solving
+ * 
+ * Job endpoints (several schedules solved in parallel):
+ * - POST /rolling-stock-schedule/jobs - Start solving a schedule (demo data if empty), returns the job id;
+ *   departures that already have a vilciens are kept as the starting point
+ * - POST /rolling-stock-schedule/jobs/import - Same as POST /jobs, but streams large schedules
+ *   instead of binding the whole document at once
+ * - POST /rolling-stock-schedule/jobs/{jobId}/solve - Solve a job again from its best solution
+ * - GET /rolling-stock-schedule/jobs/{jobId} - Get the status and best solution of a job
+ * - DELETE /rolling-stock-schedule/jobs/{jobId} - Stop solving and remove a job
+ * - GET /rolling-stock-schedule/jobs/{jobId}/events - Server-Sent Events with the changed assignments
+ *   of every new best solution
+ * - GET /rolling-stock-schedule/jobs/{jobId}/assignments - Get only the train of every departure and the score
+ * - GET /rolling-stock-schedule/networks/{networkId} - Get the stations, routes, trains, demand and
+ *   departures a schedule refers to (cacheable, supports If-None-Match)
+ * 
+ * Problem changes, applied while the job keeps solving (they return the new assignments):
+ * - DELETE /rolling-stock-schedule/jobs/{jobId}/trains/{vilciensId} - A train breaks down
+ * - POST /rolling-stock-schedule/jobs/{jobId}/departures - Add a departure
+ * - DELETE /rolling-stock-schedule/jobs/{jobId}/departures/{atiesanasLaiksId} - Cancel a departure
+ * - PUT /rolling-stock-schedule/jobs/{jobId}/demands/{cilvekuPieprasijumsId} - Update the passenger demand
+ * 
+ * POST /jobs and GET /jobs/{jobId} also accept / return the binary RollingStockScheduleSnapshot
+ * (Content-Type / Accept: application/x-rolling-stock-snapshot) instead of JSON.
+ * 
+ * The endpoints without a job id (used by the UI) work on the job with id SINGLETON_ID.
  */
 @Path("/rolling-stock-schedule")
 @Produces(MediaType.APPLICATION_JSON)
@@ -26,65 +88,96 @@ public class RollingStockSchedulingResource {
     
     public static final Long SINGLETON_ID = 1L;
     
+    // Network ids are content hashes, so a cached network never goes stale
+    private static final CacheControl NETWORK_CACHE_CONTROL = networkCacheControl();
+    
     @Inject
-    SolverManager<RollingStockSchedule, Long> solverManager;
+    RollingStockJobService jobService;
     
     @Inject
     DemoDataGenerator demoDataGenerator;
     
-    // Store the best solution found by the solver
-    private volatile RollingStockSchedule bestSolution = null;
+    @Inject
+    ObjectMapper objectMapper;
     
     /**
      * GET /rolling-stock-schedule
-     * Returns the current schedule
+     * Returns the current schedule, with its version
+     * 
+     * GET /rolling-stock-schedule?since={version}
+     * Returns a RollingStockScheduleDelta with only the departures whose train changed
+     * after that version (all of them if the version is from before the last solve)
+     * and the current score
      */
     @GET
-    public RollingStockSchedule getSchedule() {
+    public Response getSchedule(@QueryParam("since") Long since) {
         try {
-            SolverStatus solverStatus = solverManager.getSolverStatus(SINGLETON_ID);
+            SolverStatus solverStatus = jobService.getSolverStatus(SINGLETON_ID);
             
-            // If we have a solution from the solver, return it
+            // If we have a solution from the solver (or the problem it is solving), return it
             // Otherwise return fresh demo data
+            RollingStockJob job = jobService.getJob(SINGLETON_ID);
+            if (job != null && since != null) {
+                return Response.ok(job.getDelta(since, solverStatus)).build();
+            }
             RollingStockSchedule schedule;
-            if (bestSolution != null) {
-                schedule = bestSolution;
+            if (job != null) {
+                schedule = job.getSchedule();
             } else {
                 schedule = demoDataGenerator.generateDemoData();
             }
             
             schedule.setSolverStatus(solverStatus);
-            return schedule;
+            return Response.ok(schedule).build();
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Error getting schedule: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * GET /rolling-stock-schedule/assignments
+     * Returns the train of every departure and the score of the current schedule,
+     * with the id of its network
+     */
+    @GET
+    @Path("/assignments")
+    public RollingStockAssignments getAssignments() {
+        return getJobAssignments(SINGLETON_ID);
+    }
+    
     /**
      * POST /rolling-stock-schedule/solve
      * Starts the solver to find optimal train assignments
+     * 
+     * POST /rolling-stock-schedule/solve?warmStart=true
+     * Starts the solver from the previous best solution instead of fresh demo data
+     * 
+     * POST /rolling-stock-schedule/solve?parallelism=N
+     * Solves with a portfolio of N independent solvers, on up to N cores
      */
     @POST
     @Path("/solve")
-    public void solve() {
+    public void solve(@QueryParam("warmStart") boolean warmStart,
+                      @QueryParam("parallelism") @DefaultValue("1") int parallelism,
+                      @QueryParam("now") LocalTime now) {
         try {
+            if (warmStart && jobService.solveFromBestSolution(SINGLETON_ID, now) != null) {
+                return;
+            }
+            
             // Check if solver is already running - if so, stop it first
-            SolverStatus status = solverManager.getSolverStatus(SINGLETON_ID);
+            SolverStatus status = jobService.getSolverStatus(SINGLETON_ID);
             if (status == SolverStatus.SOLVING_ACTIVE || status == SolverStatus.SOLVING_SCHEDULED) {
-                solverManager.terminateEarly(SINGLETON_ID);
+                jobService.terminate(SINGLETON_ID);
                 // Give it a moment to stop
                 Thread.sleep(100);
             }
             
-            // Reset best solution when starting new solve
-            bestSolution = null;
-            
-            solverManager.solveBuilder()
-                    .withProblemId(SINGLETON_ID)
-                    .withProblemFinder(id -> demoDataGenerator.generateDemoData())
-                    .withBestSolutionConsumer(solution -> bestSolution = solution)
-                    .run();
+            // Starts from scratch, replacing the previous best solution
+            jobService.solve(SINGLETON_ID, demoDataGenerator.generateDemoData(), parallelism, now);
+        } catch (WebApplicationException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Error starting solver: " + e.getMessage(), e);
@@ -98,6 +191,240 @@ public class RollingStockSchedulingResource {
     @GET
     @Path("/stop-solving")
     public void stopSolving() {
-        solverManager.terminateEarly(SINGLETON_ID);
+        jobService.terminate(SINGLETON_ID);
+    }
+    
+    /**
+     * POST /rolling-stock-schedule/jobs
+     * Starts solving the posted schedule (or demo data if there is no body) as a new job,
+     * with a portfolio of solvers if parallelism is more than 1
+     * 
+     * @return the job id
+     */
+    @POST
+    @Path("/jobs")
+    @Consumes({MediaType.APPLICATION_JSON, RollingStockScheduleSnapshot.MEDIA_TYPE})
+    public Long submitJob(@QueryParam("parallelism") @DefaultValue("1") int parallelism,
+                          @QueryParam("now") LocalTime now, RollingStockSchedule problem) {
+        return jobService.submit(problem != null ? problem : demoDataGenerator.generateDemoData(),
+                parallelism, now);
+    }
+    
+    /**
+     * POST /rolling-stock-schedule/jobs/import
+     * Starts solving the posted schedule as a new job, like POST /jobs, but reads it
+     * with a RollingStockScheduleReader: for timetables of hundreds of MB
+     * (up to rolling-stock.jobs.import.max-body-size, see RequestBodyLimitFilter)
+     * 
+     * @return the job id
+     */
+    @POST
+    @Path("/jobs/import")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Long importJob(@QueryParam("parallelism") @DefaultValue("1") int parallelism,
+                          @QueryParam("now") LocalTime now, InputStream body) {
+        RollingStockSchedule problem;
+        try {
+            problem = new RollingStockScheduleReader(objectMapper).read(body);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("The schedule could not be read: " + e.getOriginalMessage(), e);
+        } catch (RequestBodyLimitFilter.BodyTooLargeException e) {
+            throw new WebApplicationException(e.getMessage(), e, Response.Status.REQUEST_ENTITY_TOO_LARGE);
+        } catch (IOException e) {
+            throw new InternalServerErrorException("The schedule could not be imported.", e);
+        }
+        return jobService.submit(problem, parallelism, now);
+    }
+    
+    /**
+     * POST /rolling-stock-schedule/jobs/{jobId}/solve
+     * Stops the job if it is still solving and solves it again, starting from its best solution
+     */
+    @POST
+    @Path("/jobs/{jobId}/solve")
+    public void solveJobFromBestSolution(@PathParam("jobId") Long jobId, @QueryParam("now") LocalTime now) {
+        if (jobService.solveFromBestSolution(jobId, now) == null) {
+            throw new NotFoundException("No solving job with id (" + jobId + ").");
+        }
+    }
+    
+    /**
+     * GET /rolling-stock-schedule/jobs/{jobId}
+     * Returns the best solution so far (or the problem if there is none yet) with the solver status
+     */
+    @GET
+    @Path("/jobs/{jobId}")
+    @Produces({MediaType.APPLICATION_JSON, RollingStockScheduleSnapshot.MEDIA_TYPE})
+    public RollingStockSchedule getJob(@PathParam("jobId") Long jobId) {
+        RollingStockJob job = getExistingJob(jobId);
+        if (job.getException() != null) {
+            throw new InternalServerErrorException("Solving job (" + jobId + ") failed: "
+                    + job.getException().getMessage(), job.getException());
+        }
+        RollingStockSchedule schedule = job.getSchedule();
+        schedule.setSolverStatus(jobService.getSolverStatus(jobId));
+        return schedule;
+    }
+    
+    /**
+     * DELETE /rolling-stock-schedule/jobs/{jobId}
+     * Stops solving and removes the job
+     * 
+     * @return the best solution found (or the problem if there is none)
+     */
+    @DELETE
+    @Path("/jobs/{jobId}")
+    public RollingStockSchedule terminateJob(@PathParam("jobId") Long jobId) {
+        RollingStockJob job = jobService.remove(jobId);
+        if (job == null) {
+            throw new NotFoundException("No solving job with id (" + jobId + ").");
+        }
+        RollingStockSchedule schedule = job.getSchedule();
+        schedule.setSolverStatus(SolverStatus.NOT_SOLVING);
+        return schedule;
+    }
+    
+    /**
+     * GET /rolling-stock-schedule/jobs/{jobId}/events
+     * Streams the score and the changed assignments (departure id -> train id)
+     * whenever the job finds a new best solution, starting with a snapshot of all assignments
+     */
+    @GET
+    @Path("/jobs/{jobId}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<BestSolutionEvent> streamBestSolutions(@PathParam("jobId") Long jobId) {
+        RollingStockJob job = getExistingJob(jobId);
+        return job.bestSolutionEvents(jobService.getSolverStatus(jobId));
+    }
+    
+    /**
+     * GET /rolling-stock-schedule/jobs/{jobId}/assignments
+     * Returns the train of every departure and the score of the job's best solution,
+     * with the id of its network
+     */
+    @GET
+    @Path("/jobs/{jobId}/assignments")
+    public RollingStockAssignments getJobAssignments(@PathParam("jobId") Long jobId) {
+        RollingStockJob job = getExistingJob(jobId);
+        return job.getAssignments(jobService.getSolverStatus(jobId));
+    }
+    
+    /**
+     * GET /rolling-stock-schedule/networks/{networkId}
+     * Returns the reference data of a schedule with a strong ETag (the network id),
+     * or 304 Not Modified if the client already has it
+     */
+    @GET
+    @Path("/networks/{networkId}")
+    public Response getNetwork(@PathParam("networkId") String networkId, @Context Request request) {
+        RollingStockNetwork network = jobService.getNetwork(networkId);
+        if (network == null) {
+            throw new NotFoundException("No network with id (" + networkId + ").");
+        }
+        EntityTag eTag = new EntityTag(network.getId());
+        Response.ResponseBuilder response = request.evaluatePreconditions(eTag);
+        if (response == null) {
+            response = Response.ok(network.getJson(), MediaType.APPLICATION_JSON_TYPE);
+        }
+        return response.tag(eTag).cacheControl(NETWORK_CACHE_CONTROL).build();
+    }
+    
+    /**
+     * DELETE /rolling-stock-schedule/jobs/{jobId}/trains/{vilciensId}
+     * Removes a train; its departures are reassigned to the other trains
+     */
+    @DELETE
+    @Path("/jobs/{jobId}/trains/{vilciensId}")
+    public CompletionStage<RollingStockAssignments> removeTrain(@PathParam("jobId") Long jobId,
+            @PathParam("vilciensId") Long vilciensId) {
+        RollingStockJob job = getExistingJob(jobId);
+        if (job.getSchedule().getVilcieni().stream().noneMatch(v -> v.getId().equals(vilciensId))) {
+            throw new NotFoundException("No train with id (" + vilciensId + ") in solving job (" + jobId + ").");
+        }
+        return addProblemChange(job, new RemoveVilciensProblemChange(vilciensId));
+    }
+    
+    /**
+     * POST /rolling-stock-schedule/jobs/{jobId}/departures
+     * Adds a departure at an existing station
+     */
+    @POST
+    @Path("/jobs/{jobId}/departures")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public CompletionStage<RollingStockAssignments> addDeparture(@PathParam("jobId") Long jobId,
+            AtiesanasLaiks atiesanasLaiks) {
+        RollingStockJob job = getExistingJob(jobId);
+        if (atiesanasLaiks == null || atiesanasLaiks.getId() == null || atiesanasLaiks.getLaiks() == null) {
+            throw new BadRequestException("A departure needs an id and a laiks.");
+        }
+        RollingStockSchedule schedule = job.getSchedule();
+        if (schedule.getStacijas().stream().noneMatch(s -> s.getId().equals(atiesanasLaiks.getStacijasId()))) {
+            throw new BadRequestException("The departure (" + atiesanasLaiks.getId()
+                    + ") has an unknown station (" + atiesanasLaiks.getStacijasId() + ").");
+        }
+        if (schedule.getAtiesanasLaiki().stream().anyMatch(a -> a.getId().equals(atiesanasLaiks.getId()))) {
+            throw new WebApplicationException("The departure (" + atiesanasLaiks.getId() + ") already exists.",
+                    Response.Status.CONFLICT);
+        }
+        return addProblemChange(job, new AddAtiesanasLaiksProblemChange(atiesanasLaiks));
+    }
+    
+    /**
+     * DELETE /rolling-stock-schedule/jobs/{jobId}/departures/{atiesanasLaiksId}
+     * Cancels a departure
+     */
+    @DELETE
+    @Path("/jobs/{jobId}/departures/{atiesanasLaiksId}")
+    public CompletionStage<RollingStockAssignments> cancelDeparture(@PathParam("jobId") Long jobId,
+            @PathParam("atiesanasLaiksId") Long atiesanasLaiksId) {
+        RollingStockJob job = getExistingJob(jobId);
+        if (job.getSchedule().getAtiesanasLaiki().stream().noneMatch(a -> a.getId().equals(atiesanasLaiksId))) {
+            throw new NotFoundException("No departure with id (" + atiesanasLaiksId
+                    + ") in solving job (" + jobId + ").");
+        }
+        return addProblemChange(job, new CancelAtiesanasLaiksProblemChange(atiesanasLaiksId));
+    }
+    
+    /**
+     * PUT /rolling-stock-schedule/jobs/{jobId}/demands/{cilvekuPieprasijumsId}
+     * Updates (or adds) the passenger demand with that id
+     */
+    @PUT
+    @Path("/jobs/{jobId}/demands/{cilvekuPieprasijumsId}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public CompletionStage<RollingStockAssignments> updateDemand(@PathParam("jobId") Long jobId,
+            @PathParam("cilvekuPieprasijumsId") Long cilvekuPieprasijumsId, CilvekuPieprasijums cilvekuPieprasijums) {
+        RollingStockJob job = getExistingJob(jobId);
+        if (cilvekuPieprasijums == null) {
+            throw new BadRequestException("A passenger demand is required.");
+        }
+        cilvekuPieprasijums.setId(cilvekuPieprasijumsId);
+        return addProblemChange(job, new UpdateCilvekuPieprasijumsProblemChange(cilvekuPieprasijums));
+    }
+    
+    private CompletionStage<RollingStockAssignments> addProblemChange(RollingStockJob job,
+            ProblemChange<RollingStockSchedule> problemChange) {
+        return jobService.addProblemChange(job.getId(), problemChange)
+                .thenApply(ignored -> job.getAssignments(jobService.getSolverStatus(job.getId())));
+    }
+    
+    private RollingStockJob getExistingJob(Long jobId) {
+        RollingStockJob job = jobService.getJob(jobId);
+        if (job == null) {
+            throw new NotFoundException("No solving job with id (" + jobId + ").");
+        }
+        return job;
+    }
+    
+    /**
+     * Cache-Control of the network responses: max-age=86400, immutable
+     */
+    private static CacheControl networkCacheControl() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoTransform(false);
+        cacheControl.setMaxAge(86400);
+        cacheControl.getCacheExtension().put("immutable", "");
+        return cacheControl;
     }
 }
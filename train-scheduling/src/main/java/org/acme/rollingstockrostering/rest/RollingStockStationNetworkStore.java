@@ -0,0 +1,121 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.domain.Stacija;
+import org.acme.rollingstockrostering.domain.StacijuTikls;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * RollingStockStationNetworkStore - One shared StacijuTikls per distinct station network
+ * 
+ * share() replaces the stations of a problem by the shared stations of the same network
+ * (same ids, names, coordinates and neighbours), so all jobs on the same network - and
+ * all portfolio members of a job - reference one list of stations, whose coordinates
+ * and neighbours are outside of the heap. The heap of a job is then mostly its planning
+ * entities.
+ * 
+ * The networks are kept in direct buffers, or, with rolling-stock.network.directory,
+ * written once to network-<sha256>.bin there and memory-mapped read-only, so even a
+ * restarted application (or another instance on the same host) shares the pages.
+ * A network is dropped once no schedule references its stations anymore.
+ */
+@ApplicationScoped
+public class RollingStockStationNetworkStore {
+    
+    private static final Logger LOGGER = Logger.getLogger(RollingStockStationNetworkStore.class);
+    
+    // Not set = direct buffers
+    @ConfigProperty(name = "rolling-stock.network.directory")
+    Optional<String> directoryName;
+    
+    // Shared stations by the SHA-256 of their network and names
+    private final Map<String, WeakReference<List<Stacija>>> stacijasByHash = new HashMap<>();
+    
+    /**
+     * Must be called with the problem before its indices are built and before it is solved
+     */
+    public void share(RollingStockSchedule problem) {
+        if (problem.getStacijas() == null || problem.getStacijas().stream().anyMatch(s -> s.getId() == null)) {
+            return; // Left to the validation of the problem
+        }
+        StacijuTikls tikls = StacijuTikls.of(problem.getStacijas());
+        List<String> nosaukumi = new ArrayList<>(tikls.getStacijuSkaits());
+        for (Stacija stacija : problem.getStacijas()) {
+            // Of the first station with every id, like StacijuTikls.of()
+            if (tikls.getIdx(stacija.getId()) == nosaukumi.size()) {
+                nosaukumi.add(stacija.getNosaukums());
+            }
+        }
+        String hash = hash(tikls, nosaukumi);
+        
+        List<Stacija> stacijas;
+        synchronized (stacijasByHash) {
+            stacijasByHash.values().removeIf(reference -> reference.get() == null);
+            WeakReference<List<Stacija>> reference = stacijasByHash.get(hash);
+            stacijas = reference != null ? reference.get() : null;
+            if (stacijas == null) {
+                StacijuTikls shared = store(hash, tikls);
+                stacijas = shared.toStacijas(problem.getStacijas());
+                stacijasByHash.put(hash, new WeakReference<>(stacijas));
+                LOGGER.debugf("Sharing the station network (%s): %s.", hash, shared);
+            }
+        }
+        problem.setStacijas(stacijas);
+    }
+    
+    private StacijuTikls store(String hash, StacijuTikls tikls) {
+        if (directoryName.isPresent()) {
+            Path directory = Path.of(directoryName.get());
+            Path file = directory.resolve("network-" + hash + ".bin");
+            try {
+                if (!Files.exists(file)) {
+                    Files.createDirectories(directory);
+                    Path temporaryFile = Files.createTempFile(directory, "network-", ".tmp");
+                    tikls.write(temporaryFile);
+                    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                return StacijuTikls.map(file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warnf(e, "Could not memory-map the station network (%s), keeping it off-heap instead.", file);
+            }
+        }
+        return tikls.toDirect();
+    }
+    
+    private static String hash(StacijuTikls tikls, List<String> nosaukumi) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(tikls.getContent());
+            for (String nosaukums : nosaukumi) {
+                byte[] bytes = nosaukums != null ? nosaukums.getBytes(StandardCharsets.UTF_8) : new byte[0];
+                // Length first (-1 = null), so the boundaries between names are part of the hash
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(nosaukums != null ? bytes.length : -1)
+                        .flip());
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash the station network.", e);
+        }
+    }
+}
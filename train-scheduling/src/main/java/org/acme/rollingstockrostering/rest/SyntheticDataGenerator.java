@@ -0,0 +1,197 @@
+package org.acme.rollingstockrostering.rest;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.acme.rollingstockrostering.domain.*;
+
+/**
+ * SyntheticDataGenerator - Generates synthetic networks of any size for scaling tests
+ * 
+ * Unlike DemoDataGenerator (the fixed Latvian network), everything is configurable:
+ * - stationCount stations on radial lines around a hub station (like Rīga),
+ *   about 5 km apart, each connected to its neighbours on the line
+ * - routeCount routes from the hub outwards along one line, of random length
+ * - trainCount trains with capacities 100-300, each with a depot
+ * - runsPerHour route runs starting every hour from 6 AM to 10 PM,
+ *   each with one departure per station on its route (until midnight)
+ * - hourly passenger demand for every station of every route
+ * 
+ * The same parameters and seed always give the same schedule. Every step is
+ * linear in the size of its output, but solving it is not (the BraucienaLaikuMatrica
+ * alone has stations² entries), so every parameter has a maximum (the endpoint
+ * answers 400 beyond it).
+ */
+public final class SyntheticDataGenerator {
+    
+    public static final int MAX_STATION_COUNT = 2000;
+    public static final int MAX_ROUTE_COUNT = 200;
+    public static final int MAX_TRAIN_COUNT = 2000;
+    public static final int MAX_RUNS_PER_HOUR = 500;
+    
+    private static final int FIRST_HOUR = 6;
+    private static final int LAST_HOUR = 22;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    
+    private static final double HUB_LATITUDE = 56.9496; // Rīga
+    private static final double HUB_LONGITUDE = 24.1052;
+    private static final double STATION_SPACING_KM = 5.0;
+    private static final double KM_PER_DEGREE_LATITUDE = 111.0;
+    private static final double SPEED_KM_PER_MINUTE = 1.0; // 60 km/h
+    private static final int STOP_MINUTES = 2;
+    
+    private SyntheticDataGenerator() {
+    }
+    
+    /**
+     * @param stationCount 2 to MAX_STATION_COUNT
+     * @param routeCount 1 to MAX_ROUTE_COUNT
+     * @param trainCount 1 to MAX_TRAIN_COUNT
+     * @param runsPerHour route runs starting per hour over the whole network, 1 to MAX_RUNS_PER_HOUR
+     * @param seed seed of the Random, for reproducibility
+     */
+    public static RollingStockSchedule generate(int stationCount, int routeCount, int trainCount,
+                                                int runsPerHour, long seed) {
+        if (stationCount < 2 || routeCount < 1 || trainCount < 1 || runsPerHour < 1) {
+            throw new IllegalArgumentException("The stationCount (" + stationCount + ") must be at least 2"
+                    + " and the routeCount (" + routeCount + "), trainCount (" + trainCount
+                    + ") and runsPerHour (" + runsPerHour + ") at least 1.");
+        }
+        if (stationCount > MAX_STATION_COUNT || routeCount > MAX_ROUTE_COUNT || trainCount > MAX_TRAIN_COUNT
+                || runsPerHour > MAX_RUNS_PER_HOUR) {
+            throw new IllegalArgumentException("The stationCount (" + stationCount + ") must be at most "
+                    + MAX_STATION_COUNT + ", the routeCount (" + routeCount + ") at most " + MAX_ROUTE_COUNT
+                    + ", the trainCount (" + trainCount + ") at most " + MAX_TRAIN_COUNT
+                    + " and the runsPerHour (" + runsPerHour + ") at most " + MAX_RUNS_PER_HOUR + ".");
+        }
+        Random random = new Random(seed);
+        
+        Konfiguracija konfiguracija = new Konfiguracija(
+                Duration.ofMinutes(5), // Minimum 5 minutes between trains
+                Duration.ofMinutes(STOP_MINUTES) // Station stop
+        );
+        
+        // Stations: the hub (id 1) and lines of stations radiating from it
+        int lineCount = Math.max(1, Math.min(routeCount, (stationCount - 1) / 10));
+        List<List<Stacija>> lines = new ArrayList<>(lineCount);
+        for (int line = 0; line < lineCount; line++) {
+            lines.add(new ArrayList<>());
+        }
+        List<Stacija> stacijas = new ArrayList<>(stationCount);
+        Stacija hub = new Stacija(1L, "Mezgls", new GeoCoordinates(HUB_LATITUDE, HUB_LONGITUDE));
+        hub.setKaiminiStacijas(new ArrayList<>());
+        stacijas.add(hub);
+        double kmPerDegreeLongitude = KM_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(HUB_LATITUDE));
+        for (int i = 1; i < stationCount; i++) {
+            int line = (i - 1) % lineCount;
+            List<Stacija> lineStacijas = lines.get(line);
+            double angle = 2.0 * Math.PI * line / lineCount + (random.nextDouble() - 0.5) * 0.1;
+            double distanceKm = (lineStacijas.size() + 1) * STATION_SPACING_KM * (0.8 + 0.4 * random.nextDouble());
+            Stacija stacija = new Stacija((long) (i + 1), "Stacija " + (i + 1), new GeoCoordinates(
+                    HUB_LATITUDE + distanceKm * Math.sin(angle) / KM_PER_DEGREE_LATITUDE,
+                    HUB_LONGITUDE + distanceKm * Math.cos(angle) / kmPerDegreeLongitude));
+            stacija.setKaiminiStacijas(new ArrayList<>());
+            Stacija previous = lineStacijas.isEmpty() ? hub : lineStacijas.get(lineStacijas.size() - 1);
+            previous.getKaiminiStacijas().add(stacija.getId());
+            stacija.getKaiminiStacijas().add(previous.getId());
+            lineStacijas.add(stacija);
+            stacijas.add(stacija);
+        }
+        
+        // Routes: from the hub along one line, the first route of every line goes to its end
+        List<Marsruts> marsruti = new ArrayList<>(routeCount);
+        List<List<Stacija>> marsrutuStacijas = new ArrayList<>(routeCount);
+        for (int r = 0; r < routeCount; r++) {
+            List<Stacija> lineStacijas = lines.get(r % lineCount);
+            int length = r < lineCount ? lineStacijas.size() : 1 + random.nextInt(lineStacijas.size());
+            List<Stacija> route = new ArrayList<>(length + 1);
+            route.add(hub);
+            route.addAll(lineStacijas.subList(0, length));
+            List<Long> stacijuIds = new ArrayList<>(route.size());
+            for (Stacija stacija : route) {
+                stacijuIds.add(stacija.getId());
+            }
+            marsruti.add(new Marsruts((long) (r + 1), "Maršruts " + (r + 1), stacijuIds));
+            marsrutuStacijas.add(route);
+        }
+        
+        // Trains and their depots: the hub or the first station of a line
+        List<Vilciens> vilcieni = new ArrayList<>(trainCount);
+        List<Depo> depo = new ArrayList<>(trainCount);
+        for (int i = 0; i < trainCount; i++) {
+            Vilciens vilciens = new Vilciens((long) (i + 1), 100 + 10 * random.nextInt(21));
+            vilcieni.add(vilciens);
+            int depoLine = random.nextInt(lineCount + 1);
+            Stacija depoStacija = depoLine == lineCount ? hub : lines.get(depoLine).get(0);
+            depo.add(new Depo((long) (i + 1), vilciens.getId(), depoStacija.getId()));
+        }
+        
+        // Hourly demand per route and station, looked up by the departures through the index
+        List<CilvekuPieprasijums> cilvekuPieprasijumi = new ArrayList<>();
+        long pieprasijumaId = 1L;
+        for (int r = 0; r < routeCount; r++) {
+            for (Stacija stacija : marsrutuStacijas.get(r)) {
+                for (int hour = FIRST_HOUR; hour <= LAST_HOUR; hour++) {
+                    cilvekuPieprasijumi.add(new CilvekuPieprasijums(pieprasijumaId++, stacija.getId(),
+                            marsruti.get(r).getId(), LocalTime.of(hour, 0), generateDemand(random, hour)));
+                }
+            }
+        }
+        CilvekuPieprasijumuIndekss indekss = CilvekuPieprasijumuIndekss.of(stacijas, marsruti, cilvekuPieprasijumi);
+        
+        // Departures: every run stops at each station of its route, driving time depends on the distance
+        List<AtiesanasLaiks> atiesanasLaiki = new ArrayList<>();
+        long atiesanasId = 1L;
+        for (int hour = FIRST_HOUR; hour <= LAST_HOUR; hour++) {
+            for (int run = 0; run < runsPerHour; run++) {
+                int r = random.nextInt(routeCount);
+                List<Stacija> route = marsrutuStacijas.get(r);
+                int laiksMinutes = hour * 60 + random.nextInt(60);
+                for (int s = 0; s < route.size() && laiksMinutes < MINUTES_PER_DAY; s++) {
+                    if (s > 0) {
+                        double distanceKm = route.get(s - 1).getKoordinatas().distanceTo(route.get(s).getKoordinatas());
+                        laiksMinutes += STOP_MINUTES + (int) Math.ceil(distanceKm / SPEED_KM_PER_MINUTE);
+                        if (laiksMinutes >= MINUTES_PER_DAY) {
+                            break; // The rest of the run is after midnight
+                        }
+                    }
+                    // After the last hour with demand, the demand of the last hour
+                    int stunda = Math.min(Math.max(laiksMinutes / 60, FIRST_HOUR), LAST_HOUR);
+                    atiesanasLaiki.add(new AtiesanasLaiks(atiesanasId++, route.get(s).getId(),
+                            marsruti.get(r).getId(), LocalTime.of(laiksMinutes / 60, laiksMinutes % 60),
+                            indekss.getCilvekuSkaits(route.get(s).getId(), marsruti.get(r).getId(), stunda)));
+                }
+            }
+        }
+        
+        RollingStockSchedule schedule = new RollingStockSchedule(
+                vilcieni,
+                stacijas,
+                marsruti,
+                depo,
+                cilvekuPieprasijumi,
+                konfiguracija,
+                atiesanasLaiki
+        );
+        schedule.buildIndices();
+        return schedule;
+    }
+    
+    /**
+     * Passenger demand with morning and evening rush hours, like DemoDataGenerator
+     */
+    private static int generateDemand(Random random, int hour) {
+        if (hour >= 7 && hour <= 9) {
+            return 50 + random.nextInt(100);
+        } else if (hour >= 17 && hour <= 19) {
+            return 40 + random.nextInt(80);
+        } else if (hour >= 10 && hour <= 16) {
+            return 20 + random.nextInt(40);
+        } else {
+            return 10 + random.nextInt(20);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.acme.rollingstockrostering.solver;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.Marsruts;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.domain.Stacija;
+import org.acme.rollingstockrostering.domain.Vilciens;
+
+import ai.timefold.solver.core.api.solver.change.ProblemChange;
+import ai.timefold.solver.core.api.solver.change.ProblemChangeDirector;
+
+/**
+ * AddAtiesanasLaiksProblemChange - A departure is added during the day
+ * 
+ * Resolves the station, route, the position on the route (and the train, if the
+ * departure is already assigned) against the working solution, like
+ * RollingStockSchedule.buildIndices() does,
+ * and adds the departure as a new planning entity.
+ * The station must exist in the working solution.
+ */
+public class AddAtiesanasLaiksProblemChange implements ProblemChange<RollingStockSchedule> {
+    
+    private final AtiesanasLaiks atiesanasLaiks;
+    
+    public AddAtiesanasLaiksProblemChange(AtiesanasLaiks atiesanasLaiks) {
+        this.atiesanasLaiks = atiesanasLaiks;
+    }
+    
+    @Override
+    public void doChange(RollingStockSchedule workingSolution, ProblemChangeDirector problemChangeDirector) {
+        for (AtiesanasLaiks existing : workingSolution.getAtiesanasLaiki()) {
+            if (existing.getId().equals(atiesanasLaiks.getId())) {
+                return; // Already added
+            }
+        }
+        Stacija workingStacija = null;
+        for (Stacija stacija : workingSolution.getStacijas()) {
+            if (stacija.getId().equals(atiesanasLaiks.getStacijasId())) {
+                workingStacija = stacija;
+                break;
+            }
+        }
+        if (workingStacija == null) {
+            throw new IllegalArgumentException("The departure (" + atiesanasLaiks.getId()
+                    + ") has an unknown station (" + atiesanasLaiks.getStacijasId() + ").");
+        }
+        Vilciens workingVilciens = null;
+        if (atiesanasLaiks.getVilciens() != null) {
+            for (Vilciens vilciens : workingSolution.getVilcieni()) {
+                if (vilciens.getId().equals(atiesanasLaiks.getVilciens().getId())) {
+                    workingVilciens = vilciens;
+                    break;
+                }
+            }
+        }
+        atiesanasLaiks.setStacija(workingStacija);
+        atiesanasLaiks.setStacijasIdx(workingStacija.getIdx());
+        if (workingSolution.getCilvekuPieprasijumuIndekss() != null) {
+            atiesanasLaiks.setMarsrutaIdx(
+                    workingSolution.getCilvekuPieprasijumuIndekss().getMarsrutaIdx(atiesanasLaiks.getMarsrutaId()));
+        }
+        atiesanasLaiks.setMarsrutaPozicija(-1);
+        for (Marsruts marsruts : workingSolution.getMarsruti()) {
+            if (marsruts.getId().equals(atiesanasLaiks.getMarsrutaId())) {
+                atiesanasLaiks.setMarsrutaPozicija(marsruts.getStacijas().indexOf(atiesanasLaiks.getStacijasId()));
+                break;
+            }
+        }
+        if (workingSolution.getBraucienaLaikuMatrica() != null) {
+            atiesanasLaiks.setMaxBraucienaLaiks(
+                    workingSolution.getBraucienaLaikuMatrica().getMaxBraucienaLaiks(workingStacija.getIdx()));
+        }
+        atiesanasLaiks.setVilciens(workingVilciens);
+        problemChangeDirector.addEntity(atiesanasLaiks, workingSolution.getAtiesanasLaiki()::add);
+    }
+}
@@ -0,0 +1,37 @@
+package org.acme.rollingstockrostering.solver;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+
+import ai.timefold.solver.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+
+/**
+ * AtiesanasLaiksNearbyDistanceMeter - Distance between two departures for nearby selection
+ * 
+ * Combines the distance between the stations (km) with the gap between the
+ * departure times (minutes, weighted as 1 km per minute, roughly train speed).
+ * With nearby selection, swap moves then mostly pair departures that are
+ * close in space and time, where exchanging trains is likely to help.
+ * 
+ * Used by nearbySolverConfig.xml (nearby selection requires Timefold Solver Enterprise).
+ * RollingStockSchedule.buildIndices() must have been called on the problem.
+ * With shared stations (see RollingStockStationNetworkStore) the distance is read
+ * from the StacijuTikls, without allocating coordinates.
+ */
+public class AtiesanasLaiksNearbyDistanceMeter implements NearbyDistanceMeter<AtiesanasLaiks, AtiesanasLaiks> {
+    
+    private static final double KM_PER_MINUTE = 1.0;
+    
+    @Override
+    public double getNearbyDistance(AtiesanasLaiks origin, AtiesanasLaiks destination) {
+        double distanceKm = 0.0;
+        if (origin.getStacijasIdx() != destination.getStacijasIdx()
+                && origin.getStacija() != null && destination.getStacija() != null) {
+            double stacijuDistanceKm = origin.getStacija().distanceKm(destination.getStacija());
+            if (!Double.isNaN(stacijuDistanceKm)) {
+                distanceKm = stacijuDistanceKm;
+            }
+        }
+        int minutesGap = Math.abs(origin.getLaiksMinutes() - destination.getLaiksMinutes());
+        return distanceKm + minutesGap * KM_PER_MINUTE;
+    }
+}
@@ -0,0 +1,32 @@
+package org.acme.rollingstockrostering.solver;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+
+import ai.timefold.solver.core.api.solver.change.ProblemChange;
+import ai.timefold.solver.core.api.solver.change.ProblemChangeDirector;
+
+/**
+ * CancelAtiesanasLaiksProblemChange - A departure is cancelled during the day
+ * 
+ * Removes the planning entity, freeing its train for the other departures.
+ */
+public class CancelAtiesanasLaiksProblemChange implements ProblemChange<RollingStockSchedule> {
+    
+    private final Long atiesanasLaiksId;
+    
+    public CancelAtiesanasLaiksProblemChange(Long atiesanasLaiksId) {
+        this.atiesanasLaiksId = atiesanasLaiksId;
+    }
+    
+    @Override
+    public void doChange(RollingStockSchedule workingSolution, ProblemChangeDirector problemChangeDirector) {
+        for (AtiesanasLaiks atiesanasLaiks : workingSolution.getAtiesanasLaiki()) {
+            if (atiesanasLaiks.getId().equals(atiesanasLaiksId)) {
+                problemChangeDirector.removeEntity(atiesanasLaiks, workingSolution.getAtiesanasLaiki()::remove);
+                return;
+            }
+        }
+        // Already cancelled
+    }
+}
@@ -0,0 +1,58 @@
+package org.acme.rollingstockrostering.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.domain.Vilciens;
+
+import ai.timefold.solver.core.api.solver.change.ProblemChange;
+import ai.timefold.solver.core.api.solver.change.ProblemChangeDirector;
+
+/**
+ * RemoveVilciensProblemChange - A train breaks down
+ * 
+ * Unassigns (and unpins) all departures of the train and removes it from the
+ * value range, so the solver reassigns those departures to the remaining trains.
+ * The train list is a problem fact list, which the solution cloner shares with
+ * the best solutions (and the submitted problem), so it is replaced by a copy
+ * without the train instead of changed in place.
+ */
+public class RemoveVilciensProblemChange implements ProblemChange<RollingStockSchedule> {
+    
+    private final Long vilciensId;
+    
+    public RemoveVilciensProblemChange(Long vilciensId) {
+        this.vilciensId = vilciensId;
+    }
+    
+    @Override
+    public void doChange(RollingStockSchedule workingSolution, ProblemChangeDirector problemChangeDirector) {
+        Vilciens workingVilciens = null;
+        for (Vilciens vilciens : workingSolution.getVilcieni()) {
+            if (vilciens.getId().equals(vilciensId)) {
+                workingVilciens = vilciens;
+                break;
+            }
+        }
+        if (workingVilciens == null) {
+            return; // Already removed
+        }
+        for (AtiesanasLaiks atiesanasLaiks : workingSolution.getAtiesanasLaiki()) {
+            if (atiesanasLaiks.getVilciens() == workingVilciens) {
+                if (atiesanasLaiks.isPinned()) {
+                    // Frozen, but its train is gone
+                    problemChangeDirector.changeProblemProperty(atiesanasLaiks, a -> a.setPinned(false));
+                }
+                problemChangeDirector.changeVariable(atiesanasLaiks, "vilciens",
+                        a -> a.setVilciens(null));
+            }
+        }
+        problemChangeDirector.removeProblemFact(workingVilciens, vilciens -> {
+            List<Vilciens> vilcieni = new ArrayList<>(workingSolution.getVilcieni());
+            vilcieni.remove(vilciens);
+            workingSolution.setVilcieni(vilcieni);
+        });
+    }
+}
@@ -4,8 +4,10 @@ import org.acme.rollingstockrostering.domain.*;
 
 import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
 import ai.timefold.solver.core.api.score.stream.Constraint;
+import ai.timefold.solver.core.api.score.stream.ConstraintCollectors;
 import ai.timefold.solver.core.api.score.stream.ConstraintFactory;
 import ai.timefold.solver.core.api.score.stream.ConstraintProvider;
+import ai.timefold.solver.core.api.score.stream.Joiners;
 
 /**
  * RollingStockConstraintProvider - Defines all constraints for the problem
@@ -19,6 +21,19 @@ import ai.timefold.solver.core.api.score.stream.ConstraintProvider;
  * 4. vilciensPienakLaika - Minimize delays from scheduled time
  * 5. minimizetTuksunsBraucienus - Penalize empty trains
  * 6. maksimizetPasazieru Uznemsanu - Reward passenger pickup
+ * 7. minimizetTuksusParbraucienus - Minimize empty repositioning runs between departures
+ * 
+ * All constraints work on the primitive fields precomputed on the domain
+ * (laiksMinutes, stacijasIdx, vilciens idx), so no LocalTime/Duration or
+ * boxed id comparisons happen while calculating the score.
+ * This is not allocation-free: the joiners and collectors take their keys as
+ * objects, so int keys such as minutes of day (mostly above the Integer cache
+ * of -128..127) are still boxed on every evaluation.
+ * RollingStockSchedule.buildIndices() must have been called on the problem.
+ * The demand of a departure is its cilvekuDelta. The travel time between two
+ * stations is the BraucienaLaikuMatrica problem fact (see
+ * RollingStockSchedule.buildBraucienaLaikuMatrica(); without a shared network it is
+ * BraucienaLaikuMatrica.BEZ_TIKLA, with MIN_NEZINAMS_LAIKS between different stations).
  */
 public class RollingStockConstraintProvider implements ConstraintProvider {
     
@@ -33,7 +48,8 @@ public class RollingStockConstraintProvider implements ConstraintProvider {
                 // Soft constraints
                 vilciensPienakLaika(constraintFactory),
                 minimizetTuksusBraucienus(constraintFactory),
-                maksimizetPasazieruUznemsanu(constraintFactory)
+                maksimizetPasazieruUznemsanu(constraintFactory),
+                minimizetTuksusParbraucienus(constraintFactory)
         };
     }
     
@@ -42,29 +58,35 @@ public class RollingStockConstraintProvider implements ConstraintProvider {
      * 
      * Renamed to: vilciensNevarButDivasVietas (Train cannot be in two places at once)
      * 
-     * Logic: A train cannot service two departures that are too close in time
-     *        (less than 30 minutes apart) unless they are the same station.
+     * Logic: A train cannot service two departures that are closer in time
+     *        than the travel time between their stations (BraucienaLaikuMatrica,
+     *        at least 30 minutes if no path between them is known; 0 for the same station).
      * 
      * This prevents unrealistic assignments where a train would need to
      * teleport between stations.
+     * 
+     * The time window is part of the join (overlapping joiner on minute of day,
+     * as wide as the longest travel time from the departure's station), so only
+     * departures of the same train that are actually close in time get paired.
      */
     Constraint vilciensApmekleVisasStacijas(ConstraintFactory constraintFactory) {
         return constraintFactory.forEachUniquePair(AtiesanasLaiks.class,
                 // Must have same train assigned
-                ai.timefold.solver.core.api.score.stream.Joiners.equal(AtiesanasLaiks::getVilciens)
+                Joiners.equal(AtiesanasLaiks::getVilciens),
+                // And the later one is within the longest travel time from the earlier one's station:
+                // [laiks, laiks + maxBraucienaLaiks) windows overlap
+                Joiners.overlapping(AtiesanasLaiks::getLaiksMinutes,
+                        atiesanasLaiks -> atiesanasLaiks.getLaiksMinutes() + atiesanasLaiks.getMaxBraucienaLaiks())
         )
                 // Filter: penalize if assigned to same train
                 .filter((a1, a2) -> a1.getVilciens() != null)
-                // And times are within 30 minutes of each other
-                .filter((a1, a2) -> {
-                    if (a1.getLaiks() == null || a2.getLaiks() == null) return false;
-                    long minutesDiff = Math.abs(
-                            java.time.Duration.between(a1.getLaiks(), a2.getLaiks()).toMinutes()
-                    );
-                    return minutesDiff < 30;
-                })
+                .filter((a1, a2) -> a1.getLaiksMinutes() >= 0 && a2.getLaiksMinutes() >= 0)
                 // And they are at different stations (can't be in 2 places at once)
-                .filter((a1, a2) -> !a1.getStacijasId().equals(a2.getStacijasId()))
+                .filter((a1, a2) -> a1.getStacijasIdx() != a2.getStacijasIdx())
+                // And the train cannot travel between them in time
+                .join(BraucienaLaikuMatrica.class)
+                .filter((a1, a2, matrica) -> !matrica.canReach(
+                        a1.getStacijasIdx(), a1.getLaiksMinutes(), a2.getStacijasIdx(), a2.getLaiksMinutes()))
                 .penalize(HardSoftScore.ONE_HARD)
                 .asConstraint("vilciensApmekleVisasStacijas");
     }
@@ -100,30 +122,40 @@ public class RollingStockConstraintProvider implements ConstraintProvider {
      * Logic: Ensure trains end their day at their depot station.
      *
      * Implementation:
-     * - For each departure that has a train assigned
-     * - Check if it's the last departure for that train (latest time)
-     * - If it's the last departure and the train has a depot
-     * - Penalize if the station is NOT the depot station
+     * - Group the departures that have a train assigned by train,
+     *   keeping only the latest departure time (incrementally maintained max)
+     * - Join back the departure(s) of that train at that latest time
+     *   (ties are all treated as the last departure)
+     * - If the train has a depot, penalize if the station is NOT the depot station
+     *
+     * A reassignment only re-evaluates the depot check when it changes a
+     * train's latest departure, instead of re-checking every departure of the
+     * old and new train for a later one.
      */
     Constraint vilciensNonakDepo(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(AtiesanasLaiks.class)
                 // Only check departures with assigned trains
                 .filter(atiesanasLaiks -> atiesanasLaiks.getVilciens() != null)
-                .filter(atiesanasLaiks -> atiesanasLaiks.getLaiks() != null)
-                // Check if there's NO later departure for the same train
-                .ifNotExists(AtiesanasLaiks.class,
-                        ai.timefold.solver.core.api.score.stream.Joiners.equal(AtiesanasLaiks::getVilciens),
-                        ai.timefold.solver.core.api.score.stream.Joiners.greaterThan(AtiesanasLaiks::getLaiks)
+                .filter(atiesanasLaiks -> atiesanasLaiks.getLaiksMinutes() >= 0)
+                // Latest departure time of each train
+                .groupBy(AtiesanasLaiks::getVilciens,
+                        ConstraintCollectors.max(AtiesanasLaiks::getLaiksMinutes))
+                // The departure(s) of that train at its latest time
+                .join(constraintFactory.forEach(AtiesanasLaiks.class)
+                                .filter(atiesanasLaiks -> atiesanasLaiks.getLaiksMinutes() >= 0),
+                        Joiners.equal((vilciens, pedejaisLaiks) -> vilciens, AtiesanasLaiks::getVilciens),
+                        Joiners.equal((vilciens, pedejaisLaiks) -> pedejaisLaiks, AtiesanasLaiks::getLaiksMinutes)
                 )
                 // Join with Depo to find this train's depot station
                 .join(Depo.class,
-                        ai.timefold.solver.core.api.score.stream.Joiners.equal(
-                                atiesanasLaiks -> atiesanasLaiks.getVilciens().getId(),
-                                Depo::getVilciensId
+                        Joiners.equal(
+                                (vilciens, pedejaisLaiks, atiesanasLaiks) -> vilciens.getIdx(),
+                                Depo::getVilciensIdx
                         )
                 )
                 // Filter: penalize if last departure is NOT at depot station
-                .filter((atiesanasLaiks, depo) -> !atiesanasLaiks.getStacijasId().equals(depo.getStacijaId()))
+                .filter((vilciens, pedejaisLaiks, atiesanasLaiks, depo) ->
+                        atiesanasLaiks.getStacijasIdx() != depo.getStacijasIdx())
                 .penalize(HardSoftScore.ONE_HARD)
                 .asConstraint("vilciensNonakDepo");
     }
@@ -186,4 +218,33 @@ public class RollingStockConstraintProvider implements ConstraintProvider {
                 )
                 .asConstraint("maksimizetPasazieruUznemsanu");
     }
+    
+    /**
+     * SOFT CONSTRAINT 7: minimizetTuksusParbraucienus
+     * 
+     * Logic: Penalize the empty runs a train makes to reposition: from the station of
+     *        each of its departures to the station of its next departure, by the travel
+     *        time in the BraucienaLaikuMatrica (minutes, about 1 km per minute).
+     *        Driving on to the next stop of the same route is no empty run.
+     * 
+     * Implementation:
+     * - Group the departures that have a train assigned by train, with the
+     *   TuksoParbraucienuCollector keeping them in time order and summing the
+     *   travel time between consecutive ones
+     * - Penalize each train by its sum
+     * 
+     * A reassignment only updates the runs to and from the moved departure's
+     * neighbours in the old and new train, without joining departures in pairs.
+     */
+    Constraint minimizetTuksusParbraucienus(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(AtiesanasLaiks.class)
+                .filter(atiesanasLaiks -> atiesanasLaiks.getVilciens() != null)
+                .filter(atiesanasLaiks -> atiesanasLaiks.getLaiksMinutes() >= 0)
+                .join(BraucienaLaikuMatrica.class)
+                .groupBy((atiesanasLaiks, matrica) -> atiesanasLaiks.getVilciens(), new TuksoParbraucienuCollector())
+                .filter((vilciens, minutes) -> minutes > 0)
+                // Penalize one per minute of empty running
+                .penalize(HardSoftScore.ONE_SOFT, (vilciens, minutes) -> minutes)
+                .asConstraint("minimizetTuksusParbraucienus");
+    }
 }
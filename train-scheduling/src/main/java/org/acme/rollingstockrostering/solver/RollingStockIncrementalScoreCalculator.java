@@ -0,0 +1,314 @@
+package org.acme.rollingstockrostering.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.*;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.score.calculator.IncrementalScoreCalculator;
+
+/**
+ * RollingStockIncrementalScoreCalculator - Hand-written alternative to RollingStockConstraintProvider
+ *
+ * Implements the same seven constraints (and gives the same scores) as the
+ * Constraint Streams version, but without a node network: each train keeps
+ * its departures in an array sorted by time, so a train change only has to
+ * look at the departures of the old and new train around the moved one.
+ *
+ * HARD CONSTRAINTS:
+ * 1. vilciensApmekleVisasStacijas - window scan of +- the longest travel time from the
+ *    departure's station in the sorted array, checked against the BraucienaLaikuMatrica
+ * 2. vilciensNeparsniezKapacitati - per departure
+ * 3. vilciensNonakDepo - departures at the end of the sorted array
+ *
+ * SOFT CONSTRAINTS:
+ * 4. vilciensPienakLaika - placeholder, always 0
+ * 5. minimizetTuksusBraucienus - per departure
+ * 6. maksimizetPasazieruUznemsanu - per departure
+ * 7. minimizetTuksusParbraucienus - travel times between neighbours in the sorted array,
+ *    kept as a running sum per train
+ *
+ * Selected with incrementalSolverConfig.xml instead of solverConfig.xml.
+ * RollingStockSchedule.buildIndices() must have been called on the problem,
+ * and buildBraucienaLaikuMatrica() for the travel times of a shared network.
+ */
+public class RollingStockIncrementalScoreCalculator
+        implements IncrementalScoreCalculator<RollingStockSchedule, HardSoftScore> {
+    
+    private static final int[] NO_DEPO = new int[0];
+    
+    private VilcienaAtiesanas[] atiesanasByVilciens; // Sorted departures per train index
+    private int[][] depoStacijasByVilciens; // Depot station indices per train index
+    private int[] depoPenaltyByVilciens; // Current vilciensNonakDepo penalty per train index
+    private BraucienaLaikuMatrica braucienaLaikuMatrica;
+    
+    private int hardScore;
+    private int softScore;
+    
+    @Override
+    public void resetWorkingSolution(RollingStockSchedule workingSolution) {
+        List<Vilciens> vilcieni = workingSolution.getVilcieni();
+        int vilcienuCount = 0;
+        for (Vilciens vilciens : vilcieni) {
+            vilcienuCount = Math.max(vilcienuCount, vilciens.getIdx() + 1);
+        }
+        atiesanasByVilciens = new VilcienaAtiesanas[vilcienuCount];
+        for (int i = 0; i < vilcienuCount; i++) {
+            atiesanasByVilciens[i] = new VilcienaAtiesanas();
+        }
+        depoStacijasByVilciens = new int[vilcienuCount][];
+        Arrays.fill(depoStacijasByVilciens, NO_DEPO);
+        if (workingSolution.getDepo() != null) {
+            for (Depo depo : workingSolution.getDepo()) {
+                int vilciensIdx = depo.getVilciensIdx();
+                if (vilciensIdx < 0 || vilciensIdx >= vilcienuCount) {
+                    continue; // Depot of a train that is not in the value range
+                }
+                int[] stacijas = depoStacijasByVilciens[vilciensIdx];
+                stacijas = Arrays.copyOf(stacijas, stacijas.length + 1);
+                stacijas[stacijas.length - 1] = depo.getStacijasIdx();
+                depoStacijasByVilciens[vilciensIdx] = stacijas;
+            }
+        }
+        depoPenaltyByVilciens = new int[vilcienuCount];
+        braucienaLaikuMatrica = workingSolution.getBraucienaLaikuMatrica() != null
+                ? workingSolution.getBraucienaLaikuMatrica()
+                : BraucienaLaikuMatrica.BEZ_TIKLA;
+        
+        hardScore = 0;
+        softScore = 0;
+        for (AtiesanasLaiks atiesanasLaiks : workingSolution.getAtiesanasLaiki()) {
+            insert(atiesanasLaiks);
+        }
+    }
+    
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // Do nothing
+    }
+    
+    @Override
+    public void afterEntityAdded(Object entity) {
+        insert((AtiesanasLaiks) entity);
+    }
+    
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        retract((AtiesanasLaiks) entity);
+    }
+    
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        insert((AtiesanasLaiks) entity);
+    }
+    
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        retract((AtiesanasLaiks) entity);
+    }
+    
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        // Do nothing
+    }
+    
+    private void insert(AtiesanasLaiks atiesanasLaiks) {
+        Vilciens vilciens = atiesanasLaiks.getVilciens();
+        if (vilciens == null) {
+            return;
+        }
+        if (atiesanasLaiks.getLaiksMinutes() >= 0) {
+            int vilciensIdx = vilciens.getIdx();
+            VilcienaAtiesanas atiesanas = atiesanasByVilciens[vilciensIdx];
+            // HARD 1: vilciensApmekleVisasStacijas
+            hardScore -= atiesanas.countConflicts(atiesanasLaiks, braucienaLaikuMatrica);
+            // SOFT 7: minimizetTuksusParbraucienus
+            softScore += atiesanas.parbraucienuMinutes;
+            atiesanas.add(atiesanasLaiks, braucienaLaikuMatrica);
+            softScore -= atiesanas.parbraucienuMinutes;
+            // HARD 3: vilciensNonakDepo
+            updateDepoPenalty(vilciensIdx);
+        }
+        // HARD 2: vilciensNeparsniezKapacitati
+        int overCapacity = atiesanasLaiks.getCilvekuDelta() - vilciens.getKapacitate();
+        if (overCapacity > 0) {
+            hardScore -= overCapacity;
+        }
+        // SOFT 5: minimizetTuksusBraucienus
+        if (atiesanasLaiks.getCilvekuDelta() == 0) {
+            softScore -= 10;
+        }
+        // SOFT 6: maksimizetPasazieruUznemsanu
+        if (atiesanasLaiks.getCilvekuDelta() > 0) {
+            softScore += atiesanasLaiks.getCilvekuDelta();
+        }
+    }
+    
+    private void retract(AtiesanasLaiks atiesanasLaiks) {
+        Vilciens vilciens = atiesanasLaiks.getVilciens();
+        if (vilciens == null) {
+            return;
+        }
+        if (atiesanasLaiks.getLaiksMinutes() >= 0) {
+            int vilciensIdx = vilciens.getIdx();
+            VilcienaAtiesanas atiesanas = atiesanasByVilciens[vilciensIdx];
+            softScore += atiesanas.parbraucienuMinutes;
+            atiesanas.remove(atiesanasLaiks, braucienaLaikuMatrica);
+            softScore -= atiesanas.parbraucienuMinutes;
+            hardScore += atiesanas.countConflicts(atiesanasLaiks, braucienaLaikuMatrica);
+            updateDepoPenalty(vilciensIdx);
+        }
+        int overCapacity = atiesanasLaiks.getCilvekuDelta() - vilciens.getKapacitate();
+        if (overCapacity > 0) {
+            hardScore += overCapacity;
+        }
+        if (atiesanasLaiks.getCilvekuDelta() == 0) {
+            softScore += 10;
+        }
+        if (atiesanasLaiks.getCilvekuDelta() > 0) {
+            softScore -= atiesanasLaiks.getCilvekuDelta();
+        }
+    }
+    
+    /**
+     * Recalculates vilciensNonakDepo for one train: every departure at the
+     * train's latest time is penalized once per depot it is not located at.
+     */
+    private void updateDepoPenalty(int vilciensIdx) {
+        hardScore += depoPenaltyByVilciens[vilciensIdx];
+        int penalty = 0;
+        int[] depoStacijas = depoStacijasByVilciens[vilciensIdx];
+        if (depoStacijas.length > 0) {
+            VilcienaAtiesanas atiesanas = atiesanasByVilciens[vilciensIdx];
+            int last = atiesanas.size - 1;
+            if (last >= 0) {
+                int pedejaisLaiks = atiesanas.items[last].getLaiksMinutes();
+                for (int i = last; i >= 0 && atiesanas.items[i].getLaiksMinutes() == pedejaisLaiks; i--) {
+                    int stacijasIdx = atiesanas.items[i].getStacijasIdx();
+                    for (int depoStacijasIdx : depoStacijas) {
+                        if (stacijasIdx != depoStacijasIdx) {
+                            penalty++;
+                        }
+                    }
+                }
+            }
+        }
+        depoPenaltyByVilciens[vilciensIdx] = penalty;
+        hardScore -= penalty;
+    }
+    
+    @Override
+    public HardSoftScore calculateScore() {
+        return HardSoftScore.of(hardScore, softScore);
+    }
+    
+    /**
+     * Departures of one train, sorted by time (and id for equal times).
+     */
+    private static final class VilcienaAtiesanas {
+        
+        private AtiesanasLaiks[] items = new AtiesanasLaiks[16];
+        private int size = 0;
+        private int parbraucienuMinutes = 0; // Travel time between consecutive departures
+        
+        void add(AtiesanasLaiks atiesanasLaiks, BraucienaLaikuMatrica matrica) {
+            int index = -(binarySearch(atiesanasLaiks) + 1);
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            System.arraycopy(items, index, items, index + 1, size - index);
+            items[index] = atiesanasLaiks;
+            size++;
+            parbraucienuMinutes += parbraucienuDelta(index, matrica);
+        }
+        
+        void remove(AtiesanasLaiks atiesanasLaiks, BraucienaLaikuMatrica matrica) {
+            int index = binarySearch(atiesanasLaiks);
+            if (index < 0) {
+                throw new IllegalStateException("The departure (" + atiesanasLaiks
+                        + ") is not in the sorted departures of its train.");
+            }
+            parbraucienuMinutes -= parbraucienuDelta(index, matrica);
+            size--;
+            System.arraycopy(items, index + 1, items, index, size - index);
+            items[size] = null;
+        }
+        
+        /**
+         * Travel time the departure at index adds between its neighbours
+         */
+        private int parbraucienuDelta(int index, BraucienaLaikuMatrica matrica) {
+            int delta = 0;
+            if (index > 0) {
+                delta += TuksoParbraucienuCollector.parbraucienaLaiks(matrica, items[index - 1], items[index]);
+            }
+            if (index < size - 1) {
+                delta += TuksoParbraucienuCollector.parbraucienaLaiks(matrica, items[index], items[index + 1]);
+            }
+            if (index > 0 && index < size - 1) {
+                delta -= TuksoParbraucienuCollector.parbraucienaLaiks(matrica, items[index - 1], items[index + 1]);
+            }
+            return delta;
+        }
+        
+        /**
+         * Number of departures (other than the given one) at a different station that
+         * are closer to it in time than the travel time between the stations.
+         * The travel time is at most the departure's maxBraucienaLaiks, which bounds the scan.
+         */
+        int countConflicts(AtiesanasLaiks atiesanasLaiks, BraucienaLaikuMatrica matrica) {
+            int laiks = atiesanasLaiks.getLaiksMinutes();
+            int stacijasIdx = atiesanasLaiks.getStacijasIdx();
+            int logs = atiesanasLaiks.getMaxBraucienaLaiks();
+            int count = 0;
+            for (int i = lowerBound(laiks - logs + 1); i < size && items[i].getLaiksMinutes() < laiks + logs; i++) {
+                AtiesanasLaiks cita = items[i];
+                if (cita != atiesanasLaiks && cita.getStacijasIdx() != stacijasIdx
+                        && !matrica.canReach(stacijasIdx, laiks, cita.getStacijasIdx(), cita.getLaiksMinutes())) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        /**
+         * Index of the first departure at or after the given minute of day.
+         */
+        private int lowerBound(int laiks) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (items[mid].getLaiksMinutes() < laiks) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        
+        private int binarySearch(AtiesanasLaiks atiesanasLaiks) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compare(items[mid], atiesanasLaiks);
+                if (comparison < 0) {
+                    low = mid + 1;
+                } else if (comparison > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+        
+        private static int compare(AtiesanasLaiks a, AtiesanasLaiks b) {
+            int comparison = Integer.compare(a.getLaiksMinutes(), b.getLaiksMinutes());
+            return comparison != 0 ? comparison : a.getId().compareTo(b.getId());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.acme.rollingstockrostering.solver;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import ai.timefold.solver.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import ai.timefold.solver.core.config.constructionheuristic.ConstructionHeuristicType;
+import ai.timefold.solver.core.config.localsearch.LocalSearchPhaseConfig;
+import ai.timefold.solver.core.config.localsearch.decider.acceptor.LocalSearchAcceptorConfig;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+
+/**
+ * RollingStockPortfolio - Solver configs for the members of a parallel portfolio
+ * 
+ * Member 0 is the configured solver itself. Every other member solves the same
+ * problem independently, with its own random seed and one of the local search
+ * acceptors compared in benchmarkConfig.xml, so the members explore different
+ * parts of the search space on separate cores. Unlike move-thread-count,
+ * this doesn't need Timefold Solver Enterprise.
+ */
+public final class RollingStockPortfolio {
+    
+    private static final List<Supplier<LocalSearchAcceptorConfig>> ACCEPTORS = List.of(
+            () -> new LocalSearchAcceptorConfig().withLateAcceptanceSize(400),
+            () -> new LocalSearchAcceptorConfig().withEntityTabuSize(7),
+            () -> new LocalSearchAcceptorConfig().withSimulatedAnnealingStartingTemperature("0hard/200soft"),
+            () -> new LocalSearchAcceptorConfig().withLateAcceptanceSize(800),
+            () -> new LocalSearchAcceptorConfig().withEntityTabuSize(7).withLateAcceptanceSize(400));
+    
+    private RollingStockPortfolio() {
+    }
+    
+    /**
+     * @param solverConfig the configured solver (score director, termination), not modified
+     * @param member 1 or higher
+     */
+    public static SolverConfig memberConfig(SolverConfig solverConfig, int member) {
+        if (member < 1) {
+            throw new IllegalArgumentException("The portfolio member (" + member
+                    + ") must be 1 or higher, member 0 is the configured solver itself.");
+        }
+        LocalSearchAcceptorConfig acceptorConfig = ACCEPTORS.get((member - 1) % ACCEPTORS.size()).get();
+        return solverConfig.copyConfig()
+                .withRandomSeed((long) member)
+                .withPhases(
+                        new ConstructionHeuristicPhaseConfig()
+                                .withConstructionHeuristicType(ConstructionHeuristicType.FIRST_FIT),
+                        new LocalSearchPhaseConfig()
+                                .withAcceptorConfig(acceptorConfig));
+    }
+}
@@ -0,0 +1,126 @@
+package org.acme.rollingstockrostering.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+
+import ai.timefold.solver.core.api.score.director.ScoreDirector;
+import ai.timefold.solver.core.impl.partitionedsearch.partitioner.SolutionPartitioner;
+
+/**
+ * RollingStockSolutionPartitioner - Splits a schedule for partitioned search
+ * 
+ * Every partition gets a copy of part of the departures and shares all problem
+ * facts (every train can run in every partition). Departures are split:
+ * - by laiks (default): into consecutive time bands with the same number of departures,
+ *   only the last band keeps the depots (a train only has to end the day at its depot)
+ * - by marsruts: whole routes (corridors), balanced by number of departures
+ * 
+ * Conflicts across partition borders (e.g. two departures of one train 10
+ * minutes apart in different bands) are only seen by the global local search
+ * that follows the partitioned search phase.
+ * 
+ * Used by partitionedSolverConfig.xml (partitioned search requires Timefold Solver Enterprise),
+ * configured with the custom properties partCount, minimumPartSize and partitionBy.
+ */
+public class RollingStockSolutionPartitioner implements SolutionPartitioner<RollingStockSchedule> {
+    
+    private int partCount = 4;
+    private int minimumPartSize = 25; // Fewer parts if they would be smaller than this
+    private String partitionBy = "laiks"; // "laiks" or "marsruts"
+    
+    @Override
+    public List<RollingStockSchedule> splitWorkingSolution(ScoreDirector<RollingStockSchedule> scoreDirector,
+                                                          Integer runnablePartThreadLimit) {
+        RollingStockSchedule workingSolution = scoreDirector.getWorkingSolution();
+        List<AtiesanasLaiks> atiesanasLaiki = workingSolution.getAtiesanasLaiki();
+        int count = Math.max(1, Math.min(partCount, atiesanasLaiki.size() / minimumPartSize));
+        
+        List<List<AtiesanasLaiks>> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(new ArrayList<>(atiesanasLaiki.size() / count + 1));
+        }
+        boolean byLaiks;
+        switch (partitionBy) {
+            case "laiks" -> {
+                byLaiks = true;
+                List<AtiesanasLaiks> sorted = new ArrayList<>(atiesanasLaiki);
+                sorted.sort(Comparator.comparingInt(AtiesanasLaiks::getLaiksMinutes)
+                        .thenComparing(AtiesanasLaiks::getId));
+                for (int i = 0; i < sorted.size(); i++) {
+                    parts.get(i * count / sorted.size()).add(copy(sorted.get(i)));
+                }
+            }
+            case "marsruts" -> {
+                byLaiks = false;
+                Map<Long, List<AtiesanasLaiks>> byMarsruts = new LinkedHashMap<>();
+                for (AtiesanasLaiks atiesanasLaiks : atiesanasLaiki) {
+                    byMarsruts.computeIfAbsent(atiesanasLaiks.getMarsrutaId(), k -> new ArrayList<>())
+                            .add(atiesanasLaiks);
+                }
+                List<List<AtiesanasLaiks>> marsruti = new ArrayList<>(byMarsruts.values());
+                marsruti.sort(Comparator.comparingInt((List<AtiesanasLaiks> m) -> m.size()).reversed());
+                for (List<AtiesanasLaiks> marsruts : marsruti) {
+                    List<AtiesanasLaiks> smallest = Collections.min(parts, Comparator.comparingInt(List::size));
+                    for (AtiesanasLaiks atiesanasLaiks : marsruts) {
+                        smallest.add(copy(atiesanasLaiks));
+                    }
+                }
+            }
+            default -> throw new IllegalStateException("The partitionBy (" + partitionBy
+                    + ") is not supported, use laiks or marsruts.");
+        }
+        
+        List<RollingStockSchedule> partitions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean lastBand = i == count - 1;
+            RollingStockSchedule partition = new RollingStockSchedule(
+                    workingSolution.getVilcieni(),
+                    workingSolution.getStacijas(),
+                    workingSolution.getMarsruti(),
+                    !byLaiks || lastBand ? workingSolution.getDepo() : new ArrayList<>(),
+                    workingSolution.getCilvekuPieprasijumi(),
+                    workingSolution.getKonfiguracija(),
+                    parts.get(i));
+            partition.setCilvekuPieprasijumuIndekss(workingSolution.getCilvekuPieprasijumuIndekss());
+            partition.setBraucienaLaikuMatrica(workingSolution.getBraucienaLaikuMatrica());
+            partitions.add(partition);
+        }
+        return partitions;
+    }
+    
+    /**
+     * Copy of the departure for a partition, merged back by its @PlanningId
+     */
+    private static AtiesanasLaiks copy(AtiesanasLaiks original) {
+        AtiesanasLaiks copy = new AtiesanasLaiks(original.getId(), original.getStacijasId(),
+                original.getMarsrutaId(), original.getLaiks(), original.getCilvekuDelta());
+        copy.setStacijasIdx(original.getStacijasIdx());
+        copy.setMarsrutaIdx(original.getMarsrutaIdx());
+        copy.setMarsrutaPozicija(original.getMarsrutaPozicija());
+        copy.setMaxBraucienaLaiks(original.getMaxBraucienaLaiks());
+        copy.setStacija(original.getStacija());
+        copy.setVilciens(original.getVilciens());
+        copy.setPinned(original.isPinned());
+        return copy;
+    }
+    
+    // Custom properties (set from solutionPartitionerCustomProperties)
+    public void setPartCount(int partCount) {
+        this.partCount = partCount;
+    }
+    
+    public void setMinimumPartSize(int minimumPartSize) {
+        this.minimumPartSize = minimumPartSize;
+    }
+    
+    public void setPartitionBy(String partitionBy) {
+        this.partitionBy = partitionBy;
+    }
+}
@@ -0,0 +1,114 @@
+package org.acme.rollingstockrostering.solver;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.BraucienaLaikuMatrica;
+
+import ai.timefold.solver.core.api.function.TriFunction;
+import ai.timefold.solver.core.api.score.stream.bi.BiConstraintCollector;
+
+/**
+ * TuksoParbraucienuCollector - Deadhead minutes of one train, maintained incrementally
+ *
+ * Collects the departures of a train (with the BraucienaLaikuMatrica) in time order
+ * (and id for equal times, like RollingStockIncrementalScoreCalculator) and sums the
+ * travel time between every two consecutive departures: the empty repositioning run
+ * from one departure's station to the next one's. A departure that is the next stop
+ * of the same route run after the previous one is no empty run, see parbraucienaLaiks(),
+ * so a train that drives a whole route run has none.
+ *
+ * Adding or removing a departure only changes the runs to and from its neighbours
+ * in the order, so an update is O(log n) instead of a join over all departures of the train.
+ * The departure times must not change while a departure is collected.
+ */
+public class TuksoParbraucienuCollector
+        implements BiConstraintCollector<AtiesanasLaiks, BraucienaLaikuMatrica, TuksoParbraucienuCollector.Parbraucieni,
+                Integer> {
+
+    // Longest stop (with timetable slack) at a station within one run of a route
+    public static final int MAX_STAVESANAS_LAIKS = 30;
+
+    private static final Comparator<AtiesanasLaiks> LAIKA_SECIBA =
+            Comparator.comparingInt(AtiesanasLaiks::getLaiksMinutes).thenComparing(AtiesanasLaiks::getId);
+
+    /**
+     * The departures of one train and the sum of their consecutive travel times
+     */
+    public static final class Parbraucieni {
+
+        private final TreeSet<AtiesanasLaiks> atiesanas = new TreeSet<>(LAIKA_SECIBA);
+        private int minutes;
+
+        private void add(AtiesanasLaiks atiesanasLaiks, BraucienaLaikuMatrica matrica) {
+            if (atiesanas.add(atiesanasLaiks)) {
+                minutes += delta(atiesanasLaiks, matrica);
+            }
+        }
+
+        private void remove(AtiesanasLaiks atiesanasLaiks, BraucienaLaikuMatrica matrica) {
+            if (atiesanas.remove(atiesanasLaiks)) {
+                minutes -= delta(atiesanasLaiks, matrica);
+            }
+        }
+
+        /**
+         * Change in minutes when the departure is inserted between its neighbours in the set
+         */
+        private int delta(AtiesanasLaiks atiesanasLaiks, BraucienaLaikuMatrica matrica) {
+            AtiesanasLaiks ieprieksejais = atiesanas.lower(atiesanasLaiks);
+            AtiesanasLaiks nakamais = atiesanas.higher(atiesanasLaiks);
+            int delta = 0;
+            if (ieprieksejais != null) {
+                delta += parbraucienaLaiks(matrica, ieprieksejais, atiesanasLaiks);
+            }
+            if (nakamais != null) {
+                delta += parbraucienaLaiks(matrica, atiesanasLaiks, nakamais);
+            }
+            if (ieprieksejais != null && nakamais != null) {
+                delta -= parbraucienaLaiks(matrica, ieprieksejais, nakamais);
+            }
+            return delta;
+        }
+    }
+    
+    /**
+     * Empty running in minutes from one departure of a train to its next one: none if the
+     * next one is the next stop of the same run of the route (the train carries passengers
+     * there), otherwise the travel time between their stations. The next stop belongs to
+     * the same run if it departs no earlier, and at most the travel time and
+     * MAX_STAVESANAS_LAIKS later; a later run of the route that the train joins there
+     * has an empty run to it.
+     */
+    public static int parbraucienaLaiks(BraucienaLaikuMatrica matrica, AtiesanasLaiks no, AtiesanasLaiks uz) {
+        int braucienaLaiks = matrica.getBraucienaLaiks(no.getStacijasIdx(), uz.getStacijasIdx());
+        int starpiba = uz.getLaiksMinutes() - no.getLaiksMinutes();
+        if (no.getMarsrutaIdx() == uz.getMarsrutaIdx() && no.getMarsrutaPozicija() >= 0
+                && uz.getMarsrutaPozicija() == no.getMarsrutaPozicija() + 1
+                && starpiba >= 0 && starpiba <= braucienaLaiks + MAX_STAVESANAS_LAIKS) {
+            return 0;
+        }
+        return braucienaLaiks;
+    }
+
+    @Override
+    public Supplier<Parbraucieni> supplier() {
+        return Parbraucieni::new;
+    }
+
+    @Override
+    public TriFunction<Parbraucieni, AtiesanasLaiks, BraucienaLaikuMatrica, Runnable> accumulator() {
+        return (parbraucieni, atiesanasLaiks, matrica) -> {
+            parbraucieni.add(atiesanasLaiks, matrica);
+            return () -> parbraucieni.remove(atiesanasLaiks, matrica);
+        };
+    }
+
+    @Override
+    public Function<Parbraucieni, Integer> finisher() {
+        return parbraucieni -> parbraucieni.minutes;
+    }
+}
@@ -0,0 +1,78 @@
+package org.acme.rollingstockrostering.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.CilvekuPieprasijums;
+import org.acme.rollingstockrostering.domain.CilvekuPieprasijumuIndekss;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+
+import ai.timefold.solver.core.api.solver.change.ProblemChange;
+import ai.timefold.solver.core.api.solver.change.ProblemChangeDirector;
+
+/**
+ * UpdateCilvekuPieprasijumsProblemChange - The passenger demand forecast changes
+ * 
+ * Replaces the demand with the same id in the working solution by the given
+ * demand, or adds it as a new problem fact if there is none, and rebuilds
+ * the CilvekuPieprasijumuIndekss. The constraints read the demand of a departure
+ * from its cilvekuDelta, so the departures at the station, route and hour of the
+ * new (and the replaced) demand get theirs from the new index.
+ * The demand list is a problem fact list, which the solution cloner shares with
+ * the best solutions (and the submitted problem), so it is replaced by a copy
+ * instead of changed in place.
+ */
+public class UpdateCilvekuPieprasijumsProblemChange implements ProblemChange<RollingStockSchedule> {
+    
+    private final CilvekuPieprasijums cilvekuPieprasijums;
+    
+    public UpdateCilvekuPieprasijumsProblemChange(CilvekuPieprasijums cilvekuPieprasijums) {
+        this.cilvekuPieprasijums = cilvekuPieprasijums;
+    }
+    
+    @Override
+    public void doChange(RollingStockSchedule workingSolution, ProblemChangeDirector problemChangeDirector) {
+        List<CilvekuPieprasijums> cilvekuPieprasijumi = new ArrayList<>(workingSolution.getCilvekuPieprasijumi());
+        workingSolution.setCilvekuPieprasijumi(cilvekuPieprasijumi);
+        CilvekuPieprasijums aizstatais = null;
+        for (CilvekuPieprasijums working : cilvekuPieprasijumi) {
+            if (working.getId().equals(cilvekuPieprasijums.getId())) {
+                // Replaced instead of changed in place: facts can be shared with other schedules
+                aizstatais = working;
+                problemChangeDirector.removeProblemFact(working, cilvekuPieprasijumi::remove);
+                break;
+            }
+        }
+        problemChangeDirector.addProblemFact(cilvekuPieprasijums, cilvekuPieprasijumi::add);
+        
+        // Not a problem fact: no constraint reads it, only the cilvekuDelta set from it below
+        CilvekuPieprasijumuIndekss indekss = CilvekuPieprasijumuIndekss.of(workingSolution.getStacijas(),
+                workingSolution.getMarsruti(), workingSolution.getCilvekuPieprasijumi());
+        workingSolution.setCilvekuPieprasijumuIndekss(indekss);
+        
+        for (AtiesanasLaiks atiesanasLaiks : workingSolution.getAtiesanasLaiki()) {
+            if (!isFor(atiesanasLaiks, cilvekuPieprasijums)
+                    && (aizstatais == null || !isFor(atiesanasLaiks, aizstatais))) {
+                continue;
+            }
+            int cilvekuSkaits = indekss.getCilvekuSkaits(atiesanasLaiks.getStacijasId(), atiesanasLaiks.getMarsrutaId(),
+                    atiesanasLaiks.getLaiksMinutes() / 60);
+            if (cilvekuSkaits != atiesanasLaiks.getCilvekuDelta()) {
+                problemChangeDirector.changeProblemProperty(atiesanasLaiks,
+                        working -> working.setCilvekuDelta(cilvekuSkaits));
+            }
+        }
+    }
+    
+    /**
+     * Does the demand apply to the departure: same station, route and hour
+     */
+    private static boolean isFor(AtiesanasLaiks atiesanasLaiks, CilvekuPieprasijums pieprasijums) {
+        return Objects.equals(atiesanasLaiks.getStacijasId(), pieprasijums.getStacijasId())
+                && Objects.equals(atiesanasLaiks.getMarsrutaId(), pieprasijums.getMarsrutaId())
+                && pieprasijums.getStunda() != null && atiesanasLaiks.getLaiksMinutes() >= 0
+                && atiesanasLaiks.getLaiksMinutes() / 60 == pieprasijums.getStunda().getHour();
+    }
+}
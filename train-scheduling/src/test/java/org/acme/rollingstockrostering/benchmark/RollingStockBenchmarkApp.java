@@ -4,6 +4,7 @@ import ai.timefold.solver.benchmark.api.PlannerBenchmark;
 import ai.timefold.solver.benchmark.api.PlannerBenchmarkFactory;
 import org.acme.rollingstockrostering.domain.RollingStockSchedule;
 import org.acme.rollingstockrostering.rest.DemoDataGenerator;
+import org.acme.rollingstockrostering.rest.SyntheticDataGenerator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +15,13 @@ import java.util.List;
  * Palaišana no komandas līnijas:
  * ./mvnw.cmd exec:java -Dexec.mainClass="org.acme.rollingstockrostering.benchmark.RollingStockBenchmarkApp"
  * 
- * Rezultāti tiks saglabāti: target/benchmark/
+ * Cita benchmark konfigurācija (piem. nearbyBenchmarkConfig.xml, vajag -Penterprise):
+ * ./mvnw.cmd exec:java -Dexec.mainClass="org.acme.rollingstockrostering.benchmark.RollingStockBenchmarkApp" -Dexec.args="nearbyBenchmarkConfig.xml"
+ * 
+ * Papildus sintētiskas problēmas mērogošanas testiem (reisi stundā, piem. 50 un 500):
+ * ./mvnw.cmd exec:java -Dexec.mainClass="org.acme.rollingstockrostering.benchmark.RollingStockBenchmarkApp" -Dexec.args="benchmarkConfig.xml 50 500"
+ * 
+ * Rezultāti tiks saglabāti: target/benchmark/ (vai konfigurācijā norādītajā benchmarkDirectory)
  */
 public class RollingStockBenchmarkApp {
 
@@ -23,27 +30,37 @@ public class RollingStockBenchmarkApp {
         System.out.println("Rolling Stock Rostering Optimization - Benchmark");
         System.out.println("=".repeat(80));
         
+        String benchmarkConfig = args.length > 0 ? args[0] : "benchmarkConfig.xml";
         PlannerBenchmarkFactory benchmarkFactory = 
-            PlannerBenchmarkFactory.createFromXmlResource("benchmarkConfig.xml");
+            PlannerBenchmarkFactory.createFromXmlResource(benchmarkConfig);
         
         // Ģenerē test datus dažādos izmēros
         List<RollingStockSchedule> problemList = new ArrayList<>();
         
         // Mazs datasets (50 atiešanas)
         System.out.println("Ģenerē mazu dataset (50 atiešanas)...");
-        problemList.add(DemoDataGenerator.generateSmallDataset());
+        problemList.add(withTravelTimes(DemoDataGenerator.generateSmallDataset()));
         
         // Vidējs datasets (99 atiešanas - default)
         System.out.println("Ģenerē vidēju dataset (99 atiešanas)...");
-        problemList.add(DemoDataGenerator.generateDefaultDataset());
+        problemList.add(withTravelTimes(DemoDataGenerator.generateDefaultDataset()));
         
         // Liels datasets (200 atiešanas)
         System.out.println("Ģenerē lielu dataset (200 atiešanas)...");
-        problemList.add(DemoDataGenerator.generateLargeDataset());
+        problemList.add(withTravelTimes(DemoDataGenerator.generateLargeDataset()));
+        
+        // Sintētiski datasets (SyntheticDataGenerator), tīkls aug līdz ar reisu skaitu
+        for (int i = 1; i < args.length; i++) {
+            int runsPerHour = Integer.parseInt(args[i]);
+            int routes = Math.max(10, runsPerHour / 4);
+            RollingStockSchedule synthetic = SyntheticDataGenerator.generate(
+                    Math.max(150, routes * 10), routes, Math.max(30, runsPerHour * 4), runsPerHour, 37L);
+            System.out.println("Ģenerē sintētisku dataset (" + synthetic.getAtiesanasLaiki().size() + " atiešanas)...");
+            problemList.add(withTravelTimes(synthetic));
+        }
         
         System.out.println("\nSākas benchmarking ar " + problemList.size() + " problēmām...");
-        System.out.println("Katrs solvers tiks testēts 30 sekundes uz katru problēmu.");
-        System.out.println("Kopējais laiks: ~" + (problemList.size() * 6 * 0.5 + 0.5) + " minūtes");
+        System.out.println("Katrs solvers tiks testēts 30 sekundes uz katru problēmu (" + benchmarkConfig + ").");
         System.out.println("=".repeat(80));
         
         PlannerBenchmark benchmark = benchmarkFactory.buildPlannerBenchmark(
@@ -56,4 +73,14 @@ public class RollingStockBenchmarkApp {
         System.out.println("Benchmark pabeigts! Rezultāti: target/benchmark/index.html");
         System.out.println("=".repeat(80));
     }
+    
+    /**
+     * Pārliek stacijas uz savu StacijuTikls un aprēķina braucienu laikus, kā RollingStockJobService
+     * pirms risināšanas (benchmark risina tieši, bez tā)
+     */
+    static RollingStockSchedule withTravelTimes(RollingStockSchedule problem) {
+        problem.buildStacijuTikls();
+        problem.buildBraucienaLaikuMatrica();
+        return problem;
+    }
 }
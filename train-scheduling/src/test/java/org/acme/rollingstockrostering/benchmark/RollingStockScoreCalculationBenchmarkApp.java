@@ -0,0 +1,67 @@
+package org.acme.rollingstockrostering.benchmark;
+
+import ai.timefold.solver.core.api.solver.Solver;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.config.solver.EnvironmentMode;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+import ai.timefold.solver.core.config.solver.termination.TerminationConfig;
+import ai.timefold.solver.core.impl.solver.DefaultSolver;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.rest.DemoDataGenerator;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Score calculation benchmark - mēra score aprēķinu ātrumu un atmiņas piešķiršanu (baiti uz aprēķinu)
+ * ar solverConfig.xml (Constraint Streams) un incrementalSolverConfig.xml.
+ * Solver darbojas šajā pavedienā, tāpēc ThreadMXBean piešķirtie baiti ir viņa piešķirtie.
+ * Katrs solver sāk no liela demo dataset un beidz pēc noteikta score aprēķinu skaita.
+ * 
+ * Palaišana no komandas līnijas (arguments: score aprēķini vienā palaišanā, noklusēti 200000):
+ * ./mvnw.cmd exec:java -Dexec.mainClass="org.acme.rollingstockrostering.benchmark.RollingStockScoreCalculationBenchmarkApp" -Dexec.classpathScope=test -Dexec.args="200000"
+ */
+public class RollingStockScoreCalculationBenchmarkApp {
+    
+    private static final int ITERATIONS = 5;
+    
+    public static void main(String[] args) {
+        System.out.println("=".repeat(80));
+        System.out.println("Rolling Stock Rostering Optimization - Score calculation");
+        System.out.println("=".repeat(80));
+        
+        long scoreCalculationCountLimit = args.length > 0 ? Long.parseLong(args[0]) : 200_000L;
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        
+        for (String solverConfigXml : new String[] {"solverConfig.xml", "incrementalSolverConfig.xml"}) {
+            long bytes = 0, nanos = 0, scoreCalculations = 0;
+            for (int i = 0; i < ITERATIONS + 1; i++) { // Pirmā iterācija ir iesildīšana
+                SolverConfig solverConfig = SolverConfig.createFromXmlResource(solverConfigXml)
+                        .withEnvironmentMode(EnvironmentMode.NO_ASSERT)
+                        .withRandomSeed(0L)
+                        .withTerminationConfig(new TerminationConfig()
+                                .withScoreCalculationCountLimit(scoreCalculationCountLimit));
+                Solver<RollingStockSchedule> solver = SolverFactory.<RollingStockSchedule>create(solverConfig)
+                        .buildSolver();
+                RollingStockSchedule problem = DemoDataGenerator.generateLargeDataset();
+                
+                long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                solver.solve(problem);
+                if (i > 0) {
+                    nanos += System.nanoTime() - start;
+                    bytes += threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+                    scoreCalculations += ((DefaultSolver<RollingStockSchedule>) solver).getScoreCalculationCount();
+                }
+            }
+            
+            System.out.printf("%n%s%n", solverConfigXml);
+            System.out.printf("  %,d score aprēķini sekundē, %.2f µs un %,.0f baiti uz aprēķinu%n",
+                    (long) (scoreCalculations * 1_000_000_000.0 / nanos),
+                    nanos / 1000.0 / scoreCalculations, (double) bytes / scoreCalculations);
+        }
+        
+        System.out.println("\n" + "=".repeat(80));
+    }
+}
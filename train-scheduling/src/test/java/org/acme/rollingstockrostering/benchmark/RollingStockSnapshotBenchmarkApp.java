@@ -0,0 +1,104 @@
+package org.acme.rollingstockrostering.benchmark;
+
+import ai.timefold.solver.jackson.api.TimefoldJacksonModule;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.rest.DemoDataGenerator;
+import org.acme.rollingstockrostering.rest.RollingStockScheduleSnapshot;
+import org.acme.rollingstockrostering.rest.SyntheticDataGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot benchmark - salīdzina RollingStockScheduleSnapshot ar JSON (izmērs, rakstīšanas un lasīšanas laiks).
+ * Round trip pārbauda RollingStockScheduleSnapshotTest.
+ * 
+ * Palaišana no komandas līnijas (argumenti: sintētiski reisi stundā, piem. 50 un 500):
+ * ./mvnw.cmd exec:java -Dexec.mainClass="org.acme.rollingstockrostering.benchmark.RollingStockSnapshotBenchmarkApp" -Dexec.classpathScope=test -Dexec.args="50 500"
+ */
+public class RollingStockSnapshotBenchmarkApp {
+    
+    private static final int ITERATIONS = 10;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=".repeat(80));
+        System.out.println("Rolling Stock Rostering Optimization - Snapshot vs JSON");
+        System.out.println("=".repeat(80));
+        
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .registerModule(TimefoldJacksonModule.createModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        
+        List<RollingStockSchedule> problems = new ArrayList<>();
+        problems.add(DemoDataGenerator.generateDefaultDataset());
+        problems.add(DemoDataGenerator.generateLargeDataset());
+        for (String arg : args) {
+            int runsPerHour = Integer.parseInt(arg);
+            int routes = Math.max(10, runsPerHour / 4);
+            problems.add(SyntheticDataGenerator.generate(
+                    Math.max(150, routes * 10), routes, Math.max(30, runsPerHour * 4), runsPerHour, 37L));
+        }
+        
+        Path snapshotFile = Files.createTempFile("rolling-stock", ".snapshot");
+        Path jsonFile = Files.createTempFile("rolling-stock", ".json");
+        try {
+            for (RollingStockSchedule problem : problems) {
+                assignEveryOtherDeparture(problem);
+                
+                long snapshotWrite = 0, snapshotRead = 0, jsonWrite = 0, jsonRead = 0;
+                for (int i = 0; i < ITERATIONS + 1; i++) { // Pirmā iterācija ir iesildīšana
+                    long start = System.nanoTime();
+                    RollingStockScheduleSnapshot.write(problem, snapshotFile);
+                    long written = System.nanoTime();
+                    RollingStockScheduleSnapshot.read(snapshotFile);
+                    long read = System.nanoTime();
+                    objectMapper.writeValue(jsonFile.toFile(), problem);
+                    long jsonWritten = System.nanoTime();
+                    objectMapper.readValue(jsonFile.toFile(), RollingStockSchedule.class).buildIndices();
+                    long jsonReadDone = System.nanoTime();
+                    if (i > 0) {
+                        snapshotWrite += written - start;
+                        snapshotRead += read - written;
+                        jsonWrite += jsonWritten - read;
+                        jsonRead += jsonReadDone - jsonWritten;
+                    }
+                }
+                
+                System.out.printf("%n%d atiešanas%n", problem.getAtiesanasLaiki().size());
+                System.out.printf("  Snapshot: %,12d baiti, raksta %8.2f ms, lasa %8.2f ms%n",
+                        Files.size(snapshotFile), millis(snapshotWrite), millis(snapshotRead));
+                System.out.printf("  JSON:     %,12d baiti, raksta %8.2f ms, lasa %8.2f ms%n",
+                        Files.size(jsonFile), millis(jsonWrite), millis(jsonRead));
+            }
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(jsonFile);
+        }
+        
+        System.out.println("\n" + "=".repeat(80));
+    }
+    
+    /**
+     * Lai snapshot saturētu arī risinājumu: katrai otrajai atiešanai piešķir vilcienu, dažas piesprauž
+     */
+    private static void assignEveryOtherDeparture(RollingStockSchedule problem) {
+        List<AtiesanasLaiks> atiesanasLaiki = problem.getAtiesanasLaiki();
+        for (int i = 0; i < atiesanasLaiki.size(); i += 2) {
+            atiesanasLaiki.get(i).setVilciens(problem.getVilcieni().get(i % problem.getVilcieni().size()));
+            atiesanasLaiki.get(i).setPinned(i % 10 == 0);
+        }
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0 / ITERATIONS;
+    }
+}
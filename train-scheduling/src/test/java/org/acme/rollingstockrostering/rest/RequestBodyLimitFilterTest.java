@@ -0,0 +1,50 @@
+package org.acme.rollingstockrostering.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads bodies sent without a Content-Length through the LimitedInputStream of
+ * RequestBodyLimitFilter, also as Jackson binds them for POST .../jobs.
+ */
+class RequestBodyLimitFilterTest {
+    
+    @Test
+    void bodyWithinTheLimitIsReadWhole() throws IOException {
+        InputStream in = new RequestBodyLimitFilter.LimitedInputStream(new ByteArrayInputStream(new byte[100]), 100);
+        
+        assertThat(in.readAllBytes()).hasSize(100);
+    }
+    
+    @Test
+    void bodyOverTheLimitIsTooLarge() {
+        InputStream in = new RequestBodyLimitFilter.LimitedInputStream(new ByteArrayInputStream(new byte[101]), 100);
+        
+        assertThatThrownBy(in::readAllBytes)
+                .isInstanceOf(RequestBodyLimitFilter.BodyTooLargeException.class)
+                .extracting(e -> ((RequestBodyLimitFilter.BodyTooLargeException) e).getMaxBytes())
+                .isEqualTo(100L);
+    }
+    
+    @Test
+    void jacksonPassesTheLimitOnUnwrapped() {
+        byte[] json = ("{\"vilcieni\":[" + "{\"id\":1},".repeat(1000) + "{\"id\":1}]}").getBytes();
+        InputStream in = new RequestBodyLimitFilter.LimitedInputStream(new ByteArrayInputStream(json), 1000);
+        
+        assertThatThrownBy(() -> new ObjectMapper().readValue(in, Body.class))
+                .isInstanceOf(RequestBodyLimitFilter.BodyTooLargeException.class);
+    }
+    
+    static class Body {
+        public List<Object> vilcieni;
+    }
+}
@@ -0,0 +1,59 @@
+package org.acme.rollingstockrostering.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes the checkpoint of a job with frozen departures and reads it back,
+ * as RollingStockJobService.resumeFromCheckpoints() does after a restart.
+ */
+class RollingStockCheckpointStoreTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void checkpointKeepsTheFrozenDepartures() throws Exception {
+        RollingStockSchedule schedule = SyntheticDataGenerator.generate(6, 1, 2, 1, 7L);
+        List<AtiesanasLaiks> atiesanasLaiki = schedule.getAtiesanasLaiki();
+        atiesanasLaiki.get(0).setVilciens(schedule.getVilcieni().get(0));
+        atiesanasLaiki.get(1).setVilciens(schedule.getVilcieni().get(0));
+        Set<Long> frozenIds = schedule.pinDeparturesBefore(24 * 60);
+        RollingStockJob job = new RollingStockJob(3L, schedule, null, () -> 1L, 2, frozenIds);
+        
+        RollingStockCheckpointStore store = createStore();
+        store.checkpoint(job, schedule);
+        store.stopWriter(null);
+        
+        assertThat(Files.exists(directory.resolve("job-3-2.checkpoint"))).isTrue();
+        List<RollingStockCheckpointStore.Checkpoint> checkpoints = createStore().readAll();
+        assertThat(checkpoints).hasSize(1);
+        RollingStockCheckpointStore.Checkpoint checkpoint = checkpoints.get(0);
+        assertThat(checkpoint.jobId()).isEqualTo(3L);
+        assertThat(checkpoint.portfolioSize()).isEqualTo(2);
+        assertThat(checkpoint.frozenIds()).containsExactlyInAnyOrderElementsOf(frozenIds).hasSize(2);
+        assertThat(checkpoint.schedule().getAtiesanasLaiki())
+                .filteredOn(AtiesanasLaiks::isPinned)
+                .extracting(AtiesanasLaiks::getId)
+                .containsExactlyInAnyOrderElementsOf(frozenIds);
+    }
+    
+    private RollingStockCheckpointStore createStore() {
+        RollingStockCheckpointStore store = new RollingStockCheckpointStore();
+        store.directoryName = Optional.of(directory.toString());
+        store.interval = Duration.ofHours(1);
+        store.startWriter();
+        return store;
+    }
+}
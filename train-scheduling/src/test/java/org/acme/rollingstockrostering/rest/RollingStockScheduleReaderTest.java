@@ -0,0 +1,116 @@
+package org.acme.rollingstockrostering.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.domain.Stacija;
+import org.acme.rollingstockrostering.domain.Vilciens;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Imports a small schedule document with RollingStockScheduleReader.
+ * 
+ * The ids are above 127, so equal ids are only the same Long instance if the reader interned them
+ * (Long.valueOf() caches -128..127 only).
+ */
+class RollingStockScheduleReaderTest {
+    
+    private static final String DOCUMENT = """
+            {
+              "vilcieni": [ { "id": 501, "kapacitate": 200 }, { "id": 502, "kapacitate": 150 } ],
+              "stacijas": [
+                { "id": 1001, "nosaukums": "Rīga", "koordinatas": { "latitude": 56.9496, "longitude": 24.1052 },
+                  "kaiminiStacijas": [ 1002 ] },
+                { "id": 1002, "nosaukums": "Jelgava", "koordinatas": { "latitude": 56.6511, "longitude": 23.7214 },
+                  "kaiminiStacijas": [ 1001 ] }
+              ],
+              "marsruti": [ { "id": 301, "nosaukums": "Rīga - Jelgava", "stacijas": [ 1001, 1002 ] } ],
+              "depo": [ { "id": 401, "vilciensId": 501, "stacijaId": 1001 } ],
+              "cilvekuPieprasijumi": [
+                { "id": 601, "stacijasId": 1001, "marsrutaId": 301, "stunda": "08:00:00", "cilvekuSkaits": 80 }
+              ],
+              "atiesanasLaiki": [
+                { "id": 701, "stacijasId": 1001, "marsrutaId": 301, "laiks": "08:10:00", "cilvekuDelta": 80,
+                  "vilciens": { "id": 501, "kapacitate": 200 }, "vilciensId": 501, "pinned": true },
+                { "id": 702, "stacijasId": 1002, "marsrutaId": 301, "laiks": "08:50:00", "cilvekuDelta": 0,
+                  "vilciens": { "id": 501, "kapacitate": 200 } },
+                { "id": 703, "stacijasId": 1002, "marsrutaId": 301, "laiks": null, "cilvekuDelta": 5,
+                  "vilciens": null }
+              ],
+              "score": "0hard/0soft",
+              "solverStatus": "NOT_SOLVING"
+            }
+            """;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    
+    @Test
+    void readsAllFactsAndDepartures() throws IOException {
+        RollingStockSchedule schedule = read();
+        
+        assertThat(schedule.getVilcieni()).hasSize(2);
+        assertThat(schedule.getStacijas()).hasSize(2);
+        assertThat(schedule.getMarsruti()).hasSize(1);
+        assertThat(schedule.getDepo()).hasSize(1);
+        assertThat(schedule.getCilvekuPieprasijumi()).hasSize(1);
+        assertThat(schedule.getAtiesanasLaiki()).extracting(AtiesanasLaiks::getId).containsExactly(701L, 702L, 703L);
+        
+        AtiesanasLaiks first = schedule.getAtiesanasLaiki().get(0);
+        assertThat(first.getLaiks()).isEqualTo(LocalTime.of(8, 10));
+        assertThat(first.getCilvekuDelta()).isEqualTo(80);
+        assertThat(first.isPinned()).isTrue();
+        AtiesanasLaiks unassigned = schedule.getAtiesanasLaiki().get(2);
+        assertThat(unassigned.getLaiks()).isNull();
+        assertThat(unassigned.getVilciens()).isNull();
+        assertThat(unassigned.isPinned()).isFalse();
+    }
+    
+    @Test
+    void internsIds() throws IOException {
+        RollingStockSchedule schedule = read();
+        Stacija riga = schedule.getStacijas().get(0);
+        Stacija jelgava = schedule.getStacijas().get(1);
+        Long marsrutaId = schedule.getMarsruti().get(0).getId();
+        
+        assertThat(schedule.getMarsruti().get(0).getStacijas().get(0)).isSameAs(riga.getId());
+        assertThat(jelgava.getKaiminiStacijas().get(0)).isSameAs(riga.getId());
+        assertThat(schedule.getDepo().get(0).getStacijaId()).isSameAs(riga.getId());
+        assertThat(schedule.getDepo().get(0).getVilciensId()).isSameAs(schedule.getVilcieni().get(0).getId());
+        assertThat(schedule.getCilvekuPieprasijumi().get(0).getStacijasId()).isSameAs(riga.getId());
+        assertThat(schedule.getCilvekuPieprasijumi().get(0).getMarsrutaId()).isSameAs(marsrutaId);
+        assertThat(schedule.getAtiesanasLaiki().get(0).getStacijasId()).isSameAs(riga.getId());
+        assertThat(schedule.getAtiesanasLaiki().get(1).getStacijasId()).isSameAs(jelgava.getId());
+        assertThat(schedule.getAtiesanasLaiki().get(2).getStacijasId()).isSameAs(jelgava.getId());
+        assertThat(schedule.getAtiesanasLaiki()).allSatisfy(
+                atiesanasLaiks -> assertThat(atiesanasLaiks.getMarsrutaId()).isSameAs(marsrutaId));
+    }
+    
+    @Test
+    void relinksAssignedTrains() throws IOException {
+        RollingStockSchedule schedule = read();
+        Vilciens vilciens = schedule.getVilcieni().get(0);
+        
+        assertThat(schedule.getAtiesanasLaiki().get(0).getVilciens()).isSameAs(vilciens);
+        assertThat(schedule.getAtiesanasLaiki().get(1).getVilciens()).isSameAs(vilciens);
+        // buildIndices() ran: the departures know their station and the demand index is there
+        assertThat(schedule.getAtiesanasLaiki().get(1).getStacija()).isSameAs(schedule.getStacijas().get(1));
+        assertThat(schedule.getCilvekuPieprasijumuIndekss().getCilvekuSkaits(1001L, 301L, 8)).isEqualTo(80);
+    }
+    
+    private RollingStockSchedule read() throws IOException {
+        return new RollingStockScheduleReader(objectMapper)
+                .read(new ByteArrayInputStream(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+    }
+}
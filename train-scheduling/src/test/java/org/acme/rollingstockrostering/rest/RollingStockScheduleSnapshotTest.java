@@ -0,0 +1,171 @@
+package org.acme.rollingstockrostering.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.channels.Channels;
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.jackson.api.TimefoldJacksonModule;
+
+/**
+ * Round trips a schedule through RollingStockScheduleSnapshot and through JSON, comparing
+ * the JSON of both sides, and reads snapshots whose sizes claim more data than there is.
+ */
+class RollingStockScheduleSnapshotTest {
+    
+    private static final int MAGIC = 0x52535353;
+    private static final int FORMAT_VERSION = 1;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .registerModule(TimefoldJacksonModule.createModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        RollingStockSchedule schedule = createSchedule();
+        
+        RollingStockSchedule copy = readSnapshot(writeSnapshot(schedule), Long.MAX_VALUE);
+        
+        assertThat(objectMapper.writeValueAsString(copy)).isEqualTo(objectMapper.writeValueAsString(schedule));
+        assertDepartures(copy);
+        assertThat(copy.getVersion()).isEqualTo(7L);
+        assertThat(copy.getScore()).isEqualTo(HardSoftScore.of(-2, -350));
+    }
+    
+    @Test
+    void jsonRoundTrip() throws IOException {
+        RollingStockSchedule schedule = createSchedule();
+        
+        RollingStockSchedule copy = objectMapper.readValue(objectMapper.writeValueAsBytes(schedule),
+                RollingStockSchedule.class);
+        copy.buildIndices();
+        
+        assertThat(objectMapper.writeValueAsString(copy)).isEqualTo(objectMapper.writeValueAsString(schedule));
+        assertDepartures(copy);
+    }
+    
+    @Test
+    void snapshotOfEmptySchedule() throws IOException {
+        RollingStockSchedule schedule = new RollingStockSchedule();
+        
+        RollingStockSchedule copy = readSnapshot(writeSnapshot(schedule), Long.MAX_VALUE);
+        
+        assertThat(copy.getAtiesanasLaiki()).isEmpty();
+        assertThat(copy.getScore()).isNull();
+        assertThat(copy.getVersion()).isNull();
+    }
+    
+    @Test
+    void listSizeBeyondTheSnapshotIsCorrupt() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes);
+        out.writeInt(Integer.MAX_VALUE); // Station count
+        byte[] snapshot = bytes.toByteArray();
+        
+        assertThatThrownBy(() -> readSnapshot(snapshot, snapshot.length))
+                .isInstanceOf(StreamCorruptedException.class)
+                .hasMessageContaining("list size (" + Integer.MAX_VALUE + ")");
+    }
+    
+    @Test
+    void stringLengthBeyondTheSnapshotIsCorrupt() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes);
+        out.writeInt(1); // Station count
+        out.writeLong(1L); // Station id
+        out.writeInt(Integer.MAX_VALUE); // Station name length
+        byte[] snapshot = bytes.toByteArray();
+        
+        // Room for the station, not for its name
+        assertThatThrownBy(() -> readSnapshot(snapshot, 1024))
+                .isInstanceOf(StreamCorruptedException.class)
+                .hasMessageContaining("string length (" + Integer.MAX_VALUE + ")");
+    }
+    
+    @Test
+    void truncatedSnapshotWithoutLimitEndsWithoutAllocatingTheClaimedSize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes);
+        out.writeInt(Integer.MAX_VALUE); // Station count
+        byte[] snapshot = bytes.toByteArray();
+        
+        // Only as much is allocated as has been read, so this fails at the end of the data instead of with OOM
+        assertThatThrownBy(() -> readSnapshot(snapshot, Long.MAX_VALUE))
+                .isInstanceOf(EOFException.class);
+    }
+    
+    /**
+     * A small synthetic schedule with assigned, unassigned and pinned departures,
+     * a departure and a demand without a time, and a score
+     */
+    private static RollingStockSchedule createSchedule() {
+        RollingStockSchedule schedule = SyntheticDataGenerator.generate(30, 3, 6, 2, 42L);
+        List<AtiesanasLaiks> atiesanasLaiki = schedule.getAtiesanasLaiki();
+        for (int i = 0; i < atiesanasLaiki.size(); i += 2) {
+            atiesanasLaiki.get(i).setVilciens(schedule.getVilcieni().get(i % schedule.getVilcieni().size()));
+            atiesanasLaiki.get(i).setPinned(i % 4 == 0);
+        }
+        atiesanasLaiki.get(1).setLaiks(null);
+        schedule.getCilvekuPieprasijumi().get(0).setStunda(null);
+        schedule.setScore(HardSoftScore.of(-2, -350));
+        schedule.setVersion(7L);
+        schedule.buildIndices();
+        return schedule;
+    }
+    
+    private static void assertDepartures(RollingStockSchedule copy) {
+        List<AtiesanasLaiks> atiesanasLaiki = copy.getAtiesanasLaiki();
+        // Pinned and assigned, assigned only, unassigned without a time, unassigned
+        assertThat(atiesanasLaiki.get(0).isPinned()).isTrue();
+        assertThat(atiesanasLaiki.get(0).getVilciens()).isSameAs(copy.getVilcieni().get(0));
+        assertThat(atiesanasLaiki.get(2).isPinned()).isFalse();
+        assertThat(atiesanasLaiki.get(2).getVilciens()).isSameAs(copy.getVilcieni().get(2));
+        assertThat(atiesanasLaiki.get(1).getLaiks()).isNull();
+        assertThat(atiesanasLaiki.get(1).getVilciens()).isNull();
+        assertThat(atiesanasLaiki.get(3).getLaiks()).isNotNull();
+        assertThat(atiesanasLaiki.get(3).getVilciens()).isNull();
+        assertThat(copy.getCilvekuPieprasijumi().get(0).getStunda()).isNull();
+    }
+    
+    private static byte[] writeSnapshot(RollingStockSchedule schedule) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RollingStockScheduleSnapshot.write(schedule, Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+    
+    private static RollingStockSchedule readSnapshot(byte[] snapshot, long maxBytes) throws IOException {
+        return RollingStockScheduleSnapshot.read(Channels.newChannel(new ByteArrayInputStream(snapshot)), maxBytes);
+    }
+    
+    /**
+     * The header of a snapshot without version, score and konfiguracija
+     */
+    private static DataOutputStream header(ByteArrayOutputStream bytes) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(Long.MIN_VALUE); // No version
+        out.writeInt(-1); // No score
+        out.writeBoolean(false); // No konfiguracija
+        return out;
+    }
+}
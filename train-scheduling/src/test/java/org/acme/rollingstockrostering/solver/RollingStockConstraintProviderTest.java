@@ -0,0 +1,162 @@
+package org.acme.rollingstockrostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.BraucienaLaikuMatrica;
+import org.acme.rollingstockrostering.domain.Depo;
+import org.acme.rollingstockrostering.domain.GeoCoordinates;
+import org.acme.rollingstockrostering.domain.Konfiguracija;
+import org.acme.rollingstockrostering.domain.Marsruts;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.domain.Stacija;
+import org.acme.rollingstockrostering.domain.Vilciens;
+import org.junit.jupiter.api.Test;
+
+import ai.timefold.solver.test.api.score.stream.ConstraintVerifier;
+
+/**
+ * Checks the constraints on travel times on a line of three stations and a route along it:
+ * a train cannot make two departures closer than the travel time between their stations
+ * (MIN_NEZINAMS_LAIKS without a network), and a train that drives a run of the route has
+ * no empty runs, only its way back or to a later run is one.
+ */
+class RollingStockConstraintProviderTest {
+    
+    private final ConstraintVerifier<RollingStockConstraintProvider, RollingStockSchedule> constraintVerifier =
+            ConstraintVerifier.build(new RollingStockConstraintProvider(), RollingStockSchedule.class,
+                    AtiesanasLaiks.class);
+    
+    @Test
+    void departuresCloserThanTheTravelTimeAreAConflict() {
+        RollingStockSchedule schedule = createSchedule(LocalTime.of(8, 0), LocalTime.of(8, 3));
+        
+        constraintVerifier.verifyThat(RollingStockConstraintProvider::vilciensApmekleVisasStacijas)
+                .given(facts(schedule))
+                .penalizesBy(1);
+    }
+    
+    @Test
+    void departuresTheTravelTimeApartAreNoConflict() {
+        RollingStockSchedule schedule = createSchedule(LocalTime.of(8, 0), LocalTime.of(8, 10));
+        
+        constraintVerifier.verifyThat(RollingStockConstraintProvider::vilciensApmekleVisasStacijas)
+                .given(facts(schedule))
+                .penalizesBy(0);
+    }
+    
+    @Test
+    void withoutANetworkDifferentStationsAreTheFixedMinimumApart() {
+        RollingStockSchedule schedule = createSchedule(false, LocalTime.of(8, 0), LocalTime.of(8, 10));
+        assertThat(schedule.getBraucienaLaikuMatrica()).isSameAs(BraucienaLaikuMatrica.BEZ_TIKLA);
+        
+        constraintVerifier.verifyThat(RollingStockConstraintProvider::vilciensApmekleVisasStacijas)
+                .given(facts(schedule))
+                .penalizesBy(1);
+    }
+    
+    @Test
+    void withoutANetworkDeparturesTheFixedMinimumApartAreNoConflict() {
+        RollingStockSchedule schedule = createSchedule(false, LocalTime.of(8, 0),
+                LocalTime.of(8, BraucienaLaikuMatrica.MIN_NEZINAMS_LAIKS));
+        
+        constraintVerifier.verifyThat(RollingStockConstraintProvider::vilciensApmekleVisasStacijas)
+                .given(facts(schedule))
+                .penalizesBy(0);
+    }
+    
+    @Test
+    void wholeRouteRunIsNoEmptyRun() {
+        RollingStockSchedule schedule = createSchedule(LocalTime.of(8, 0), LocalTime.of(8, 10), LocalTime.of(8, 20));
+        
+        constraintVerifier.verifyThat(RollingStockConstraintProvider::minimizetTuksusParbraucienus)
+                .given(facts(schedule))
+                .penalizesBy(0);
+    }
+    
+    @Test
+    void nextRunFromTheFirstStopIsAnEmptyRunBack() {
+        // The first run, then the first stop of the next run of the same route
+        RollingStockSchedule schedule = createSchedule(LocalTime.of(8, 0), LocalTime.of(8, 10), LocalTime.of(8, 20),
+                LocalTime.of(9, 0));
+        BraucienaLaikuMatrica matrica = schedule.getBraucienaLaikuMatrica();
+        int atpakal = matrica.getBraucienaLaiks(schedule.getStacijas().get(2).getIdx(),
+                schedule.getStacijas().get(0).getIdx());
+        
+        constraintVerifier.verifyThat(RollingStockConstraintProvider::minimizetTuksusParbraucienus)
+                .given(facts(schedule))
+                .penalizesBy(atpakal);
+    }
+    
+    @Test
+    void nextStopOfALaterRunIsAnEmptyRun() {
+        // The first stop of a morning run, then the second stop of an afternoon run of the same route
+        RollingStockSchedule schedule = createSchedule(LocalTime.of(8, 0), LocalTime.of(12, 0));
+        int uzNakamo = schedule.getBraucienaLaikuMatrica().getBraucienaLaiks(schedule.getStacijas().get(0).getIdx(),
+                schedule.getStacijas().get(1).getIdx());
+        
+        constraintVerifier.verifyThat(RollingStockConstraintProvider::minimizetTuksusParbraucienus)
+                .given(facts(schedule))
+                .penalizesBy(uzNakamo);
+    }
+    
+    private static RollingStockSchedule createSchedule(LocalTime... laiki) {
+        return createSchedule(true, laiki);
+    }
+    
+    /**
+     * Stations 1 - 2 - 3 about 5 km apart, route 1 along them and one train that makes
+     * every departure: at the stops of the route in turn, starting over at station 1.
+     * With the travel times of their network, or without one.
+     */
+    private static RollingStockSchedule createSchedule(boolean arTiklu, LocalTime... laiki) {
+        List<Stacija> stacijas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Stacija stacija = new Stacija((long) (i + 1), "Stacija " + (i + 1),
+                    new GeoCoordinates(56.9496 + 0.045 * i, 24.1052));
+            if (i > 0) {
+                stacija.getKaiminiStacijas().add((long) i);
+            }
+            if (i < 2) {
+                stacija.getKaiminiStacijas().add((long) (i + 2));
+            }
+            stacijas.add(stacija);
+        }
+        Marsruts marsruts = new Marsruts(1L, "Maršruts 1", List.of(1L, 2L, 3L));
+        Vilciens vilciens = new Vilciens(1L, 200);
+        List<AtiesanasLaiks> atiesanasLaiki = new ArrayList<>();
+        for (int i = 0; i < laiki.length; i++) {
+            AtiesanasLaiks atiesanasLaiks = new AtiesanasLaiks((long) (i + 1), marsruts.getStacijas().get(i % 3),
+                    marsruts.getId(), laiki[i], 10);
+            atiesanasLaiks.setVilciens(vilciens);
+            atiesanasLaiki.add(atiesanasLaiks);
+        }
+        RollingStockSchedule schedule = new RollingStockSchedule(
+                List.of(vilciens),
+                stacijas,
+                List.of(marsruts),
+                List.of(new Depo(1L, 1L, 1L)),
+                List.of(),
+                new Konfiguracija(Duration.ofMinutes(5), Duration.ofMinutes(2)),
+                atiesanasLaiki
+        );
+        if (arTiklu) {
+            schedule.buildStacijuTikls();
+        } else {
+            schedule.buildIndices();
+        }
+        schedule.buildBraucienaLaikuMatrica();
+        return schedule;
+    }
+    
+    private static Object[] facts(RollingStockSchedule schedule) {
+        List<Object> facts = new ArrayList<>(schedule.getAtiesanasLaiki());
+        facts.add(schedule.getBraucienaLaikuMatrica());
+        return facts.toArray();
+    }
+}
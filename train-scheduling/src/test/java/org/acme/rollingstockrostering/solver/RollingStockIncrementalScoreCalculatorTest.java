@@ -0,0 +1,72 @@
+package org.acme.rollingstockrostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.acme.rollingstockrostering.domain.BraucienaLaikuMatrica;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.rest.SyntheticDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import ai.timefold.solver.core.config.localsearch.LocalSearchPhaseConfig;
+import ai.timefold.solver.core.config.score.director.ScoreDirectorFactoryConfig;
+import ai.timefold.solver.core.config.solver.EnvironmentMode;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+import ai.timefold.solver.core.config.solver.termination.TerminationConfig;
+
+/**
+ * Solves briefly with the incremental score calculator in FULL_ASSERT, with
+ * RollingStockConstraintProvider as the assertion score director: the solver fails
+ * on the first move after which the two calculate a different score.
+ * 
+ * FULL_ASSERT recalculates both scores from scratch after every move, so the problems
+ * are small synthetic schedules (the demo datasets have over a thousand departures).
+ */
+class RollingStockIncrementalScoreCalculatorTest {
+    
+    @Test
+    void matchesConstraintStreamsOnOneLine() {
+        solveWithFullAssert(withTravelTimes(SyntheticDataGenerator.generate(12, 2, 4, 2, 37L)));
+    }
+    
+    @Test
+    void matchesConstraintStreamsOnSeveralLines() {
+        solveWithFullAssert(withTravelTimes(SyntheticDataGenerator.generate(30, 3, 6, 2, 42L)));
+    }
+    
+    @Test
+    void matchesConstraintStreamsWithoutANetwork() {
+        RollingStockSchedule problem = SyntheticDataGenerator.generate(12, 2, 4, 2, 37L);
+        problem.buildBraucienaLaikuMatrica();
+        assertThat(problem.getBraucienaLaikuMatrica()).isSameAs(BraucienaLaikuMatrica.BEZ_TIKLA);
+        solveWithFullAssert(problem);
+    }
+    
+    /**
+     * With the travel times of its own network, like a job of RollingStockJobService
+     */
+    private static RollingStockSchedule withTravelTimes(RollingStockSchedule problem) {
+        problem.buildStacijuTikls();
+        problem.buildBraucienaLaikuMatrica();
+        assertThat(problem.getBraucienaLaikuMatrica()).isNotSameAs(BraucienaLaikuMatrica.BEZ_TIKLA);
+        return problem;
+    }
+    
+    private static void solveWithFullAssert(RollingStockSchedule problem) {
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource("incrementalSolverConfig.xml")
+                .withEnvironmentMode(EnvironmentMode.FULL_ASSERT)
+                .withPhases(new ConstructionHeuristicPhaseConfig(),
+                        new LocalSearchPhaseConfig()
+                                .withTerminationConfig(new TerminationConfig().withStepCountLimit(200)));
+        solverConfig.getScoreDirectorFactoryConfig().setAssertionScoreDirectorFactory(
+                new ScoreDirectorFactoryConfig().withConstraintProviderClass(RollingStockConstraintProvider.class));
+        
+        RollingStockSchedule solution = SolverFactory.<RollingStockSchedule>create(solverConfig)
+                .buildSolver()
+                .solve(problem);
+        
+        assertThat(solution.getScore()).isNotNull();
+        assertThat(solution.getAtiesanasLaiki()).allMatch(atiesanasLaiks -> atiesanasLaiks.getVilciens() != null);
+    }
+}
@@ -0,0 +1,101 @@
+package org.acme.rollingstockrostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.acme.rollingstockrostering.domain.AtiesanasLaiks;
+import org.acme.rollingstockrostering.domain.CilvekuPieprasijums;
+import org.acme.rollingstockrostering.domain.Depo;
+import org.acme.rollingstockrostering.domain.GeoCoordinates;
+import org.acme.rollingstockrostering.domain.Konfiguracija;
+import org.acme.rollingstockrostering.domain.Marsruts;
+import org.acme.rollingstockrostering.domain.RollingStockSchedule;
+import org.acme.rollingstockrostering.domain.Stacija;
+import org.acme.rollingstockrostering.domain.Vilciens;
+import org.junit.jupiter.api.Test;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
+import ai.timefold.solver.core.api.solver.Solver;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+import ai.timefold.solver.core.config.solver.termination.TerminationConfig;
+
+/**
+ * Solves a schedule whose departures are all pinned, so the score only changes with the problem:
+ * a demand update has to reach the cilvekuDelta of its departures, which the constraints read,
+ * with Constraint Streams and with the incremental score calculator.
+ */
+class UpdateCilvekuPieprasijumsProblemChangeTest {
+    
+    @Test
+    void demandUpdateChangesTheScoreWithConstraintStreams() {
+        assertDemandUpdateChangesTheScore("solverConfig.xml");
+    }
+    
+    @Test
+    void demandUpdateChangesTheScoreWithIncrementalScoreCalculator() {
+        assertDemandUpdateChangesTheScore("incrementalSolverConfig.xml");
+    }
+    
+    private static void assertDemandUpdateChangesTheScore(String solverConfigResource) {
+        HardSoftScore before = solve(solverConfigResource, createSchedule(), null).getScore();
+        
+        // Demand of the second departure (station 2, route 1, 8:00 - 8:59) from 10 to 50 passengers
+        RollingStockSchedule solution = solve(solverConfigResource, createSchedule(),
+                new CilvekuPieprasijums(2L, 2L, 1L, LocalTime.of(8, 0), 50));
+        
+        assertThat(solution.getAtiesanasLaiki()).extracting(AtiesanasLaiks::getCilvekuDelta).containsExactly(10, 50);
+        assertThat(solution.getScore().hardScore()).isEqualTo(before.hardScore());
+        assertThat(solution.getScore().softScore()).isEqualTo(before.softScore() + 40);
+    }
+    
+    private static RollingStockSchedule solve(String solverConfigResource, RollingStockSchedule problem,
+                                              CilvekuPieprasijums cilvekuPieprasijums) {
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource(solverConfigResource)
+                .withTerminationConfig(new TerminationConfig().withStepCountLimit(10));
+        Solver<RollingStockSchedule> solver = SolverFactory.<RollingStockSchedule>create(solverConfig).buildSolver();
+        if (cilvekuPieprasijums != null) {
+            // Queued before solving, so the solver applies it once the first run ends
+            solver.addProblemChange(new UpdateCilvekuPieprasijumsProblemChange(cilvekuPieprasijums));
+        }
+        return solver.solve(problem);
+    }
+    
+    /**
+     * Stations 1 and 2 on route 1, with a demand of 10 passengers at each in the 8:00 hour,
+     * and one train that makes both departures of a run, pinned
+     */
+    private static RollingStockSchedule createSchedule() {
+        List<Stacija> stacijas = List.of(
+                new Stacija(1L, "Stacija 1", new GeoCoordinates(56.9496, 24.1052)),
+                new Stacija(2L, "Stacija 2", new GeoCoordinates(56.9946, 24.1052)));
+        Marsruts marsruts = new Marsruts(1L, "Maršruts 1", List.of(1L, 2L));
+        Vilciens vilciens = new Vilciens(1L, 200);
+        List<CilvekuPieprasijums> cilvekuPieprasijumi = new ArrayList<>(List.of(
+                new CilvekuPieprasijums(1L, 1L, 1L, LocalTime.of(8, 0), 10),
+                new CilvekuPieprasijums(2L, 2L, 1L, LocalTime.of(8, 0), 10)));
+        List<AtiesanasLaiks> atiesanasLaiki = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            AtiesanasLaiks atiesanasLaiks = new AtiesanasLaiks((long) (i + 1), (long) (i + 1), 1L,
+                    LocalTime.of(8, 30 * i), 10);
+            atiesanasLaiks.setVilciens(vilciens);
+            atiesanasLaiks.setPinned(true);
+            atiesanasLaiki.add(atiesanasLaiks);
+        }
+        RollingStockSchedule schedule = new RollingStockSchedule(
+                List.of(vilciens),
+                stacijas,
+                List.of(marsruts),
+                List.of(new Depo(1L, 1L, 1L)),
+                cilvekuPieprasijumi,
+                new Konfiguracija(Duration.ofMinutes(5), Duration.ofMinutes(2)),
+                atiesanasLaiki
+        );
+        schedule.buildIndices();
+        return schedule;
+    }
+}